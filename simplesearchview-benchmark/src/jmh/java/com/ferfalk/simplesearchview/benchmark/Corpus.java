@@ -0,0 +1,199 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.InvertedIndex;
+import com.ferfalk.simplesearchview.engine.PrefixIndex;
+import com.ferfalk.simplesearchview.engine.TextNormalizer;
+import com.ferfalk.simplesearchview.engine.TrigramIndex;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic search terms, built from syllables so that prefixes are shared the way words share them.
+ * The same size and seed always give the same terms, weights and queries, so runs of different releases compare.
+ */
+final class Corpus {
+    static final long SEED = 42;
+
+    private static final String[] SYLLABLES = {
+            "an", "ar", "ba", "be", "ca", "co", "da", "de", "el", "en", "fa", "fi", "ga", "go", "ha", "in",
+            "ka", "la", "le", "lo", "ma", "me", "mo", "na", "ne", "no", "or", "pa", "pe", "ra", "re", "ri",
+            "ro", "sa", "se", "so", "ta", "te", "to", "tr", "un", "va", "ve", "vi", "wa", "ya", "za", "zo"
+    };
+    private static final int QUERY_COUNT = 1024;
+
+    final String[] terms;
+    final int[] weights;
+
+    private Corpus(String[] terms, int[] weights) {
+        this.terms = terms;
+        this.weights = weights;
+    }
+
+    /**
+     * @param size number of distinct terms
+     */
+    static Corpus generate(int size) {
+        Random random = new Random(SEED);
+        Set<String> unique = new HashSet<>(size * 2);
+        String[] terms = new String[size];
+        int[] weights = new int[size];
+        StringBuilder builder = new StringBuilder();
+        int count = 0;
+        while (count < size) {
+            builder.setLength(0);
+            int syllables = 2 + random.nextInt(5);
+            for (int i = 0; i < syllables; i++) {
+                builder.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            // A second word for some terms, as in "new york"
+            if (random.nextInt(4) == 0) {
+                builder.append(' ').append(SYLLABLES[random.nextInt(SYLLABLES.length)])
+                        .append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            String term = builder.toString();
+            if (unique.add(term)) {
+                terms[count] = term;
+                // Few popular terms and a long tail, like real query logs
+                weights[count] = (int) (1_000_000 / (1 + random.nextInt(size)));
+                count++;
+            }
+        }
+        return new Corpus(terms, weights);
+    }
+
+    PrefixIndex buildIndex() {
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for (int i = 0; i < terms.length; i++) {
+            builder.add(terms[i], weights[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return an index of entries made of 2 or 3 terms, like "Shoes - Black Leather"
+     */
+    InvertedIndex buildInvertedIndex() {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder(new TextNormalizer(Locale.ROOT));
+        String[] entries = entries();
+        for (int i = 0; i < entries.length; i++) {
+            builder.add(entries[i], weights[i]);
+        }
+        return builder.build();
+    }
+
+    TrigramIndex buildTrigramIndex() {
+        TrigramIndex.Builder builder = new TrigramIndex.Builder(new TextNormalizer(Locale.ROOT));
+        String[] entries = entries();
+        for (int i = 0; i < entries.length; i++) {
+            builder.add(entries[i], weights[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return one entry per term, the term followed by 1 or 2 other terms
+     */
+    String[] entries() {
+        Random random = new Random(SEED + 4);
+        String[] entries = new String[terms.length];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < entries.length; i++) {
+            builder.setLength(0);
+            builder.append(terms[i]).append(" - ").append(terms[random.nextInt(terms.length)]);
+            if (random.nextBoolean()) {
+                builder.append(' ').append(terms[random.nextInt(terms.length)]);
+            }
+            entries[i] = builder.toString();
+        }
+        return entries;
+    }
+
+    /**
+     * @return two words of an entry in reverse order, the last one cut to 1 to 4 chars
+     */
+    String[] sampleWordQueries() {
+        Random random = new Random(SEED + 5);
+        String[] entries = entries();
+        String[] queries = new String[QUERY_COUNT];
+        for (int i = 0; i < queries.length; i++) {
+            String[] words = entries[random.nextInt(entries.length)].split(" - | ");
+            String first = words[words.length - 1];
+            String last = words[0];
+            queries[i] = first + " " + last.substring(0, Math.min(last.length(), 1 + random.nextInt(4)));
+        }
+        return queries;
+    }
+
+    /**
+     * @return substrings of entries, 2 to 7 chars long, starting anywhere
+     */
+    String[] sampleSubstrings() {
+        Random random = new Random(SEED + 6);
+        String[] entries = entries();
+        String[] queries = new String[QUERY_COUNT];
+        for (int i = 0; i < queries.length; i++) {
+            String entry = entries[random.nextInt(entries.length)];
+            int length = Math.min(entry.length(), 2 + random.nextInt(6));
+            int start = random.nextInt(entry.length() - length + 1);
+            queries[i] = entry.substring(start, start + length);
+        }
+        return queries;
+    }
+
+    /**
+     * @return whole terms, typed char by char by the keystroke benchmarks
+     */
+    String[] sampleTerms() {
+        Random random = new Random(SEED + 1);
+        String[] queries = new String[QUERY_COUNT];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = terms[random.nextInt(terms.length)];
+        }
+        return queries;
+    }
+
+    /**
+     * @return prefixes of terms, 1 to 6 chars long
+     */
+    String[] samplePrefixes() {
+        Random random = new Random(SEED + 2);
+        String[] queries = new String[QUERY_COUNT];
+        for (int i = 0; i < queries.length; i++) {
+            String term = terms[random.nextInt(terms.length)];
+            queries[i] = term.substring(0, Math.min(term.length(), 1 + random.nextInt(6)));
+        }
+        return queries;
+    }
+
+    /**
+     * @return prefixes of terms, 4 to 8 chars long, with one char replaced, dropped or added
+     */
+    String[] sampleTypos() {
+        Random random = new Random(SEED + 3);
+        String[] queries = new String[QUERY_COUNT];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < queries.length; i++) {
+            String term = terms[random.nextInt(terms.length)];
+            builder.setLength(0);
+            builder.append(term, 0, Math.min(term.length(), 4 + random.nextInt(5)));
+            int position = random.nextInt(builder.length());
+            char typo = (char) ('a' + random.nextInt(26));
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.setCharAt(position, typo);
+                    break;
+                case 1:
+                    builder.deleteCharAt(position);
+                    break;
+                default:
+                    builder.insert(position, typo);
+                    break;
+            }
+            queries[i] = builder.toString();
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,36 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.FuzzyMatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Top 8 completions of a prefix with one typo, within the default edit distance
+ */
+@State(Scope.Thread)
+public class FuzzyBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private FuzzyMatcher matcher;
+    private String[] queries;
+    private final int[] results = new int[8];
+    private int query;
+
+    @Setup
+    public void setUp() {
+        Corpus corpus = Corpus.generate(size);
+        matcher = new FuzzyMatcher(corpus.buildIndex());
+        queries = corpus.sampleTypos();
+    }
+
+    @Benchmark
+    public int complete() {
+        query = (query + 1) % queries.length;
+        return matcher.complete(queries[query], results);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.SearchHistory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Opening a {@link SearchHistory} log of distinct queries and waiting until it is read.
+ * Opening also starts the history thread, {@link #loadMissing()} measures that part alone.
+ */
+@State(Scope.Thread)
+public class HistoryLoadBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private File file;
+    private File missingFile;
+    private SearchHistory history;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("history", ".log");
+        file.delete();
+        missingFile = new File(file.getPath() + ".missing");
+        Corpus corpus = Corpus.generate(size);
+        try (SearchHistory history = SearchHistory.open(file, size)) {
+            for (int i = 0; i < corpus.terms.length; i++) {
+                history.add(corpus.terms[i], i);
+            }
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeHistory() throws IOException {
+        // Closing isn't part of the load
+        history.close();
+        history = null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int load() {
+        history = SearchHistory.open(file, size);
+        return awaitLoaded(history);
+    }
+
+    @Benchmark
+    public int loadMissing() {
+        history = SearchHistory.open(missingFile, size);
+        return awaitLoaded(history);
+    }
+
+    private static int awaitLoaded(SearchHistory history) {
+        while (!history.isLoaded()) {
+            Thread.yield();
+        }
+        return history.size();
+    }
+}
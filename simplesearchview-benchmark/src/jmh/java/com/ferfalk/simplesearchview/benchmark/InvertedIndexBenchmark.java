@@ -0,0 +1,36 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.InvertedIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Top 8 entries containing two words in any order, the last one a prefix, as for "black sho"
+ */
+@State(Scope.Thread)
+public class InvertedIndexBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private InvertedIndex index;
+    private String[] queries;
+    private final int[] results = new int[8];
+    private int query;
+
+    @Setup
+    public void setUp() {
+        Corpus corpus = Corpus.generate(size);
+        index = corpus.buildInvertedIndex();
+        queries = corpus.sampleWordQueries();
+    }
+
+    @Benchmark
+    public int search() {
+        query = (query + 1) % queries.length;
+        return index.search(queries[query], results);
+    }
+}
@@ -0,0 +1,45 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.PrefixSearcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One keystroke of a user typing a term: the query grows by a char and is completed again,
+ * resuming from the previous one. The search starts over with the next term after the last char.
+ */
+@State(Scope.Thread)
+public class KeystrokeBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private PrefixSearcher searcher;
+    private String[] queries;
+    private final int[] results = new int[8];
+    private int query;
+    private int length;
+
+    @Setup
+    public void setUp() {
+        Corpus corpus = Corpus.generate(size);
+        searcher = new PrefixSearcher(corpus.buildIndex());
+        queries = corpus.sampleTerms();
+    }
+
+    @Benchmark
+    public int keystroke() {
+        String term = queries[query];
+        if (length == term.length()) {
+            query = (query + 1) % queries.length;
+            term = queries[query];
+            length = 0;
+            searcher.reset();
+        }
+        length++;
+        return searcher.complete(term.subSequence(0, length), results);
+    }
+}
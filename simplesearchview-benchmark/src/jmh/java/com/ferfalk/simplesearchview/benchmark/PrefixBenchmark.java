@@ -0,0 +1,36 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.PrefixIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Top 8 completions of a prefix looked up from the root, as for a pasted query
+ */
+@State(Scope.Thread)
+public class PrefixBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private PrefixIndex index;
+    private String[] queries;
+    private final int[] results = new int[8];
+    private int query;
+
+    @Setup
+    public void setUp() {
+        Corpus corpus = Corpus.generate(size);
+        index = corpus.buildIndex();
+        queries = corpus.samplePrefixes();
+    }
+
+    @Benchmark
+    public int complete() {
+        query = (query + 1) % queries.length;
+        return index.complete(queries[query], results);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.PrefixIndex;
+import com.ferfalk.simplesearchview.engine.QueryCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Looking up completions through a {@link QueryCache} of 256 queries.
+ * A hit only reads the cache, a miss completes the prefix and stores the results, evicting the oldest entry.
+ */
+@State(Scope.Thread)
+public class QueryCacheBenchmark {
+    private static final int CACHE_ENTRIES = 256;
+    private static final int RESULTS = 8;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private PrefixIndex index;
+    private QueryCache<int[]> cache;
+    private String[] cached;
+    private String[] queries;
+    private String[] missKeys;
+    private int hit;
+    private int miss;
+
+    @Setup
+    public void setUp() {
+        Corpus corpus = Corpus.generate(size);
+        index = corpus.buildIndex();
+        queries = corpus.samplePrefixes();
+        cache = new QueryCache<>(CACHE_ENTRIES, Long.MAX_VALUE, value -> 16 + 4L * value.length);
+        // Keys kept apart from the ones that miss, so hits stay hits
+        cached = new String[CACHE_ENTRIES];
+        for (int i = 0; i < cached.length; i++) {
+            cached[i] = "#" + i;
+            cache.put(cached[i], new int[RESULTS]);
+        }
+        // Distinct keys, the 1024 queries are more than the cache holds
+        missKeys = new String[queries.length];
+        for (int i = 0; i < missKeys.length; i++) {
+            missKeys[i] = queries[i] + '\u0000' + i;
+        }
+    }
+
+    @Benchmark
+    public int[] hit() {
+        hit = (hit + 1) % cached.length;
+        return cache.get(cached[hit]);
+    }
+
+    @Benchmark
+    public int[] miss() {
+        miss = (miss + 1) % queries.length;
+        int[] results = cache.get(missKeys[miss]);
+        if (results == null) {
+            results = new int[RESULTS];
+            index.complete(queries[miss], results);
+            cache.put(missKeys[miss], results);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,69 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.TopKRanker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Picking the 8 best matches of a one letter prefix, which matches about 1 term in 20,
+ * by sorting every match or with a {@link TopKRanker}
+ */
+@State(Scope.Thread)
+public class RankingBenchmark {
+    private static final int K = 8;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private String[] terms;
+    private float[] scores;
+    private final TopKRanker ranker = new TopKRanker(K);
+    private final int[] results = new int[K];
+    private char prefix;
+
+    @Setup
+    public void setUp() {
+        Corpus corpus = Corpus.generate(size);
+        terms = corpus.terms;
+        scores = new float[size];
+        for (int i = 0; i < size; i++) {
+            scores[i] = corpus.weights[i];
+        }
+        prefix = terms[0].charAt(0);
+    }
+
+    @Benchmark
+    public int sortAll() {
+        List<Integer> matches = new ArrayList<>();
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i].charAt(0) == prefix) {
+                matches.add(i);
+            }
+        }
+        Collections.sort(matches, (a, b) -> Float.compare(scores[b], scores[a]));
+        int count = Math.min(K, matches.size());
+        for (int i = 0; i < count; i++) {
+            results[i] = matches.get(i);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int topK() {
+        ranker.reset();
+        for (int i = 0; i < terms.length; i++) {
+            if (terms[i].charAt(0) == prefix) {
+                ranker.offer(i, scores[i]);
+            }
+        }
+        return ranker.drain(results, null);
+    }
+}
@@ -0,0 +1,49 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.IndexSnapshot;
+import com.ferfalk.simplesearchview.engine.PrefixIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Getting a {@link PrefixIndex} ready for its first query, built from the terms or loaded from a snapshot
+ */
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private Corpus corpus;
+    private File file;
+    private final int[] results = new int[8];
+
+    @Setup
+    public void setUp() throws IOException {
+        corpus = Corpus.generate(size);
+        file = File.createTempFile("index", ".bin");
+        IndexSnapshot.write(corpus.buildIndex(), file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int build() {
+        return corpus.buildIndex().complete("ma", results);
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        return IndexSnapshot.readPrefixIndex(file).complete("ma", results);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ferfalk.simplesearchview.benchmark;
+
+import com.ferfalk.simplesearchview.engine.TrigramIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Top 8 entries containing a substring, from the trigram index and from a linear indexOf over every entry
+ */
+@State(Scope.Thread)
+public class SubstringBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private TrigramIndex index;
+    private String[] entries;
+    private String[] queries;
+    private final int[] results = new int[8];
+    private int query;
+
+    @Setup
+    public void setUp() {
+        Corpus corpus = Corpus.generate(size);
+        index = corpus.buildTrigramIndex();
+        entries = corpus.entries();
+        queries = corpus.sampleSubstrings();
+    }
+
+    @Benchmark
+    public int trigram() {
+        query = (query + 1) % queries.length;
+        return index.search(queries[query], results);
+    }
+
+    /**
+     * Baseline, unranked, stops at the first 8 matches
+     */
+    @Benchmark
+    public int scan() {
+        query = (query + 1) % queries.length;
+        String q = queries[query];
+        int count = 0;
+        for (int i = 0; i < entries.length && count < results.length; i++) {
+            if (entries[i].contains(q)) {
+                results[count++] = i;
+            }
+        }
+        return count;
+    }
+}
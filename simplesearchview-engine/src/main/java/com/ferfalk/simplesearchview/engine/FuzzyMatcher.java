@@ -0,0 +1,187 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Typo tolerant completion over a {@link PrefixIndex}.
+ * <p>
+ * A term matches when some prefix of it is within a bounded Levenshtein distance of the query.
+ * The trie is walked depth first while a dynamic programming row per trie depth acts as a
+ * Levenshtein automaton: a branch is abandoned as soon as no cell of its row is within the
+ * distance, so only paths up to query length + distance deep are ever visited. A branch that
+ * cannot get any closer contributes its whole subtree at once, without visiting it.
+ * <p>
+ * Results are ranked by distance first, so exact prefix matches always come first, then by weight.
+ * The distance allowed grows with the query: none up to 2 chars, at most 1 up to 5 chars.
+ * Queries are normalized with the {@link TextNormalizer} of the index, so accents and case are not counted as edits.
+ * <p>
+ * Reuses its buffers between calls, not thread safe.
+ */
+public final class FuzzyMatcher {
+    public static final int DEFAULT_MAX_DISTANCE = 2;
+
+    private static final int SHORT_QUERY_LENGTH = 2;
+    private static final int MEDIUM_QUERY_LENGTH = 5;
+
+    private final PrefixIndex index;
+    private final int maxDistance;
+    private final LongIntHeap heap = new LongIntHeap(64);
+
+    private final StringBuilder normalizedQuery = new StringBuilder();
+    private char[] query = new char[32];
+    private int queryLength;
+    private int distanceLimit;
+    private int[][] rows = new int[0][];
+
+    // A candidate is a node, whose whole subtree matches, or the complement of a term id
+    private int[] candidates = new int[64];
+    private int[] candidateDistances = new int[64];
+    private int candidateCount;
+
+    public FuzzyMatcher(PrefixIndex index) {
+        this(index, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * @param index       terms to match
+     * @param maxDistance maximum number of edits between the query and a term prefix
+     */
+    public FuzzyMatcher(PrefixIndex index, int maxDistance) {
+        this.index = index;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * @see #complete(CharSequence, int[], int[])
+     */
+    public int complete(CharSequence query, int[] results) {
+        return complete(query, results, null);
+    }
+
+    /**
+     * Finds the terms with a prefix close to the query, closest first then highest weight first
+     *
+     * @param query     the query, possibly misspelled
+     * @param results   receives the term ids, its length is the maximum number of results
+     * @param distances receives the edit distance of each result, may be null
+     * @return number of ids written to results
+     */
+    public int complete(CharSequence query, int[] results, int[] distances) {
+        prepare(query);
+        candidateCount = 0;
+
+        int[] root = rows[0];
+        for (int j = 0; j <= queryLength; j++) {
+            root[j] = j;
+        }
+        for (int child = index.nodeFirstChild.get(0); child < index.nodeFirstChild.get(1); child++) {
+            visit(child, 0, queryLength);
+        }
+
+        int count = 0;
+        for (int distance = 0; distance <= distanceLimit && count < results.length; distance++) {
+            heap.clear();
+            for (int i = 0; i < candidateCount; i++) {
+                if (candidateDistances[i] != distance) {
+                    continue;
+                }
+                if (candidates[i] >= 0) {
+                    index.pushNode(heap, candidates[i]);
+                } else {
+                    index.pushTerm(heap, ~candidates[i]);
+                }
+            }
+            int tierStart = count;
+            count = index.drainTop(heap, results, count);
+            if (distances != null) {
+                Arrays.fill(distances, tierStart, count, distance);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the maximum distance allowed for a query of this length
+     */
+    public int getDistanceLimit(int queryLength) {
+        if (queryLength <= SHORT_QUERY_LENGTH) {
+            return 0;
+        }
+        if (queryLength <= MEDIUM_QUERY_LENGTH) {
+            return Math.min(maxDistance, 1);
+        }
+        return maxDistance;
+    }
+
+    private void prepare(CharSequence text) {
+        TextNormalizer normalizer = index.getNormalizer();
+        if (normalizer != null) {
+            normalizer.normalize(text, normalizedQuery);
+            text = normalizedQuery;
+        }
+        queryLength = text.length();
+        if (query.length < queryLength) {
+            query = new char[Math.max(queryLength, query.length * 2)];
+        }
+        for (int i = 0; i < queryLength; i++) {
+            query[i] = text.charAt(i);
+        }
+        distanceLimit = getDistanceLimit(queryLength);
+
+        // No path deeper than queryLength + distanceLimit can be within the limit
+        int depth = queryLength + distanceLimit + 2;
+        if (rows.length < depth || rows[0].length < queryLength + 1) {
+            rows = new int[depth][queryLength + 1];
+        }
+    }
+
+    /**
+     * @param best lowest distance between the query and a prefix of the path above the node
+     */
+    private void visit(int node, int parentDepth, int best) {
+        int depth = index.nodeDepth.get(node);
+        int base = index.termOffsets.get(index.nodeRangeStart.get(node));
+        CharBuffer chars = index.chars;
+
+        for (int k = parentDepth; k < depth; k++) {
+            char c = chars.get(base + k);
+            int[] previous = rows[k];
+            int[] row = rows[k + 1];
+            row[0] = k + 1;
+            int rowMin = row[0];
+            for (int j = 1; j <= queryLength; j++) {
+                int substitution = previous[j - 1] + (query[j - 1] == c ? 0 : 1);
+                int value = Math.min(Math.min(previous[j], row[j - 1]) + 1, substitution);
+                row[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            best = Math.min(best, row[queryLength]);
+
+            if (rowMin > distanceLimit) {
+                // Going deeper cannot get closer, the subtree matches with the best distance so far, if any
+                if (best <= distanceLimit) {
+                    addCandidate(node, best);
+                }
+                return;
+            }
+        }
+
+        if (best <= distanceLimit && index.isTerminal(node)) {
+            addCandidate(~index.nodeRangeStart.get(node), best);
+        }
+        for (int child = index.nodeFirstChild.get(node); child < index.nodeFirstChild.get(node + 1); child++) {
+            visit(child, depth, best);
+        }
+    }
+
+    private void addCandidate(int candidate, int distance) {
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+            candidateDistances = Arrays.copyOf(candidateDistances, candidateCount * 2);
+        }
+        candidates[candidateCount] = candidate;
+        candidateDistances[candidateCount] = distance;
+        candidateCount++;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ferfalk.simplesearchview.engine;
+
+/**
+ * Boyer-Moore-Horspool search of one pattern in char arrays.
+ * <p>
+ * On a mismatch the window shifts by the distance from the last occurrence of its last char in the pattern to the
+ * end of the pattern, so most text chars are never compared. The shift table has 256 slots indexed by the low byte
+ * of the char, chars sharing a slot keep the smallest shift, which is always safe. Immutable.
+ */
+final class HorspoolMatcher {
+    private static final int TABLE_SIZE = 256;
+
+    private final char[] pattern;
+    private final int[] shifts = new int[TABLE_SIZE];
+
+    HorspoolMatcher(CharSequence pattern) {
+        int length = pattern.length();
+        this.pattern = new char[length];
+        for (int i = 0; i < length; i++) {
+            this.pattern[i] = pattern.charAt(i);
+        }
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            shifts[i] = Math.max(1, length);
+        }
+        // Later positions overwrite with smaller shifts
+        for (int i = 0; i < length - 1; i++) {
+            shifts[this.pattern[i] & 0xFF] = length - 1 - i;
+        }
+    }
+
+    /**
+     * @return the first index from from of the pattern in text, ending before to, or -1
+     */
+    int indexOf(char[] text, int from, int to) {
+        int length = pattern.length;
+        if (length == 0) {
+            return from <= to ? from : -1;
+        }
+        char last = pattern[length - 1];
+        int end = to - length;
+        int i = from;
+        while (i <= end) {
+            char c = text[i + length - 1];
+            if (c == last && matchesBefore(text, i, length - 1)) {
+                return i;
+            }
+            i += shifts[c & 0xFF];
+        }
+        return -1;
+    }
+
+    private boolean matchesBefore(char[] text, int start, int count) {
+        for (int j = 0; j < count; j++) {
+            if (text[start + j] != pattern[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
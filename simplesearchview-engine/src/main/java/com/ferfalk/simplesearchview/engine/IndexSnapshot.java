@@ -0,0 +1,234 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a {@link PrefixIndex}, written once and loaded through a memory mapped file.
+ * <p>
+ * Loading doesn't build anything: the index reads its arrays through int and char views of the mapped file, so a
+ * loaded index can be queried right away and its memory is in the page cache instead of on the Java heap.
+ * Only the checksum is computed over the whole file.
+ * <p>
+ * Layout, little endian: a header {@code magic:int, version:int, type:int, sectionCount:int,
+ * payloadLength:long, crc32:int, reserved:int} followed by the payload, a table of
+ * {@code id:int, offset:int, length:int} per section then the sections, each aligned to 8 bytes.
+ * Offsets are from the start of the file, lengths are in ints or chars. The CRC32 covers the whole payload.
+ * Snapshots of another version are rejected, a new version is needed whenever the layout changes.
+ */
+public final class IndexSnapshot {
+    static final int MAGIC = 0x53535649;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int TYPE_PREFIX_INDEX = 1;
+    private static final int SECTION_ENTRY_SIZE = 12;
+    private static final int ALIGNMENT = 8;
+    private static final int CHECKSUM_CHUNK = 64 * 1024;
+
+    // Sections of a prefix index
+    private static final int CHARS = 1;
+    private static final int TERM_OFFSETS = 2;
+    private static final int WEIGHTS = 3;
+    private static final int DISPLAY_CHARS = 4;
+    private static final int DISPLAY_OFFSETS = 5;
+    private static final int NODE_FIRST_CHILD = 6;
+    private static final int NODE_DEPTH = 7;
+    private static final int NODE_RANGE_START = 8;
+    private static final int NODE_RANGE_END = 9;
+    private static final int NODE_MAX_WEIGHT = 10;
+    // Language, country and variant of the normalizer locale, separated by '_'
+    private static final int LOCALE = 11;
+    private static final int SECTION_COUNT = 11;
+
+    private IndexSnapshot() {
+    }
+
+    /**
+     * Writes the index to a new file that replaces the given one once complete
+     */
+    public static void write(PrefixIndex index, File file) throws IOException {
+        Buffer[] sections = new Buffer[SECTION_COUNT + 1];
+        sections[CHARS] = index.chars;
+        sections[TERM_OFFSETS] = index.termOffsets;
+        sections[WEIGHTS] = index.weights;
+        sections[DISPLAY_CHARS] = index.displayChars;
+        sections[DISPLAY_OFFSETS] = index.displayOffsets;
+        sections[NODE_FIRST_CHILD] = index.nodeFirstChild;
+        sections[NODE_DEPTH] = index.nodeDepth;
+        sections[NODE_RANGE_START] = index.nodeRangeStart;
+        sections[NODE_RANGE_END] = index.nodeRangeEnd;
+        sections[NODE_MAX_WEIGHT] = index.nodeMaxWeight;
+        if (index.normalizer != null) {
+            Locale locale = index.normalizer.getLocale();
+            sections[LOCALE] = CharBuffer.wrap(locale.getLanguage() + '_' + locale.getCountry() + '_' + locale.getVariant());
+        }
+
+        int sectionCount = 0;
+        for (Buffer section : sections) {
+            if (section != null) {
+                sectionCount++;
+            }
+        }
+        int offset = align(HEADER_SIZE + sectionCount * SECTION_ENTRY_SIZE);
+        int[] offsets = new int[sections.length];
+        for (int id = 1; id < sections.length; id++) {
+            if (sections[id] != null) {
+                offsets[id] = offset;
+                offset = align(offset + byteLength(sections[id]));
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(offset).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_SIZE);
+        for (int id = 1; id < sections.length; id++) {
+            if (sections[id] != null) {
+                buffer.putInt(id).putInt(offsets[id]).putInt(sections[id].limit());
+            }
+        }
+        for (int id = 1; id < sections.length; id++) {
+            if (sections[id] != null) {
+                buffer.position(offsets[id]);
+                ByteBuffer slice = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+                if (sections[id] instanceof IntBuffer) {
+                    slice.asIntBuffer().put(((IntBuffer) sections[id]).duplicate());
+                } else {
+                    slice.asCharBuffer().put(((CharBuffer) sections[id]).duplicate());
+                }
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, offset - HEADER_SIZE);
+        buffer.position(0);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(TYPE_PREFIX_INDEX).putInt(sectionCount)
+                .putLong(offset - HEADER_SIZE).putInt((int) crc.getValue()).putInt(0);
+
+        File temporary = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile output = new RandomAccessFile(temporary, "rw")) {
+            output.setLength(0);
+            output.write(buffer.array());
+            output.getFD().sync();
+        }
+        if (!temporary.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * Maps a snapshot written by {@link #write}, the file must not change while the index is used
+     *
+     * @throws IOException if the file can't be read, isn't a prefix index snapshot of this version or is corrupted
+     */
+    public static PrefixIndex readPrefixIndex(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            // The mapping stays valid once the file is closed
+            FileChannel channel = input.getChannel();
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not an index snapshot: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not an index snapshot: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported index snapshot version " + version + ": " + file);
+        }
+        if (buffer.getInt() != TYPE_PREFIX_INDEX) {
+            throw new IOException("Not a prefix index snapshot: " + file);
+        }
+        int sectionCount = buffer.getInt();
+        long payloadLength = buffer.getLong();
+        int crc = buffer.getInt();
+        if (payloadLength != buffer.capacity() - HEADER_SIZE || sectionCount < 0
+                || sectionCount > (buffer.capacity() - HEADER_SIZE) / SECTION_ENTRY_SIZE) {
+            throw new IOException("Truncated index snapshot: " + file);
+        }
+        if (crc != checksum(buffer)) {
+            throw new IOException("Corrupted index snapshot: " + file);
+        }
+
+        Buffer[] sections = new Buffer[SECTION_COUNT + 1];
+        buffer.position(HEADER_SIZE);
+        for (int i = 0; i < sectionCount; i++) {
+            int id = buffer.getInt();
+            int offset = buffer.getInt();
+            int length = buffer.getInt();
+            if (id <= 0 || id > SECTION_COUNT) {
+                // Unknown sections are skipped
+                continue;
+            }
+            boolean chars = id == CHARS || id == DISPLAY_CHARS || id == LOCALE;
+            long byteLength = (long) length * (chars ? 2 : 4);
+            if (offset < HEADER_SIZE || length < 0 || offset + byteLength > buffer.capacity()) {
+                throw new IOException("Corrupted index snapshot: " + file);
+            }
+            ByteBuffer view = buffer.duplicate();
+            view.limit((int) (offset + byteLength)).position(offset);
+            ByteBuffer slice = view.slice().order(ByteOrder.LITTLE_ENDIAN);
+            sections[id] = chars ? slice.asCharBuffer() : slice.asIntBuffer();
+        }
+
+        CharBuffer chars = (CharBuffer) sections[CHARS];
+        IntBuffer termOffsets = (IntBuffer) sections[TERM_OFFSETS];
+        IntBuffer weights = (IntBuffer) sections[WEIGHTS];
+        IntBuffer nodeFirstChild = (IntBuffer) sections[NODE_FIRST_CHILD];
+        IntBuffer nodeDepth = (IntBuffer) sections[NODE_DEPTH];
+        if (chars == null || termOffsets == null || weights == null || nodeFirstChild == null || nodeDepth == null
+                || sections[NODE_RANGE_START] == null || sections[NODE_RANGE_END] == null
+                || sections[NODE_MAX_WEIGHT] == null || termOffsets.limit() != weights.limit() + 1
+                || nodeFirstChild.limit() != nodeDepth.limit() + 1 || nodeDepth.limit() == 0
+                || (sections[DISPLAY_CHARS] == null) != (sections[DISPLAY_OFFSETS] == null)) {
+            throw new IOException("Incomplete index snapshot: " + file);
+        }
+
+        TextNormalizer normalizer = null;
+        if (sections[LOCALE] != null) {
+            String[] locale = sections[LOCALE].toString().split("_", -1);
+            normalizer = new TextNormalizer(new Locale(locale[0], locale.length > 1 ? locale[1] : "",
+                    locale.length > 2 ? locale[2] : ""));
+        }
+        return new PrefixIndex(chars, termOffsets, weights,
+                (CharBuffer) sections[DISPLAY_CHARS], (IntBuffer) sections[DISPLAY_OFFSETS], normalizer,
+                nodeFirstChild, nodeDepth, (IntBuffer) sections[NODE_RANGE_START],
+                (IntBuffer) sections[NODE_RANGE_END], (IntBuffer) sections[NODE_MAX_WEIGHT]);
+    }
+
+    /**
+     * CRC32 of the payload, copied in chunks, CRC32.update(ByteBuffer) needs API 26
+     */
+    private static int checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(HEADER_SIZE);
+        byte[] chunk = new byte[Math.min(CHECKSUM_CHUNK, payload.remaining())];
+        while (payload.hasRemaining()) {
+            int length = Math.min(chunk.length, payload.remaining());
+            payload.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static int byteLength(Buffer section) {
+        return section.limit() * (section instanceof CharBuffer ? 2 : 4);
+    }
+
+    private static int align(int offset) {
+        return (offset + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+}
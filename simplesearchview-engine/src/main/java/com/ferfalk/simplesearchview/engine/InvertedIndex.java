@@ -0,0 +1,669 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable inverted index over weighted entries, answers top-K entries containing every word of a query,
+ * in any order. "black sh" matches "Shoes - Black Leather", the last word of the query is a prefix.
+ * <p>
+ * Entries are split into words by a {@link TextNormalizer}. The distinct words are kept sorted in a single char
+ * pool, so the words starting with a prefix are a contiguous range found by binary search. Each word has a posting
+ * list, the sorted ids of the entries containing it, delta encoded as varints in blocks of {@value #BLOCK_SIZE}
+ * ids. Every block has a skip entry with its last id, so a posting list can jump to an id without decoding the
+ * blocks before it.
+ * <p>
+ * A query decodes the shortest posting list of its whole words, then intersects the others with it by galloping:
+ * each list jumps straight to the next candidate, skipping whole blocks. The candidates left are then checked
+ * against the words starting with the last query word, through their posting lists or, when there are fewer
+ * candidates than words, through the sorted word ids of each entry. A query of a single short prefix matching a
+ * large part of the entries scans the entries by decreasing weight instead of merging the posting lists.
+ * Instances are thread safe.
+ */
+public final class InvertedIndex {
+    static final int BLOCK_SIZE = 128;
+    static final int NO_ENTRY = Integer.MAX_VALUE;
+    // Above 1 posting in 8 entries, scanning by weight finds the best ones sooner than merging
+    private static final int UNION_SCAN_RATIO = 8;
+
+    private final TextNormalizer normalizer;
+
+    // Entries, entry i is textChars[textOffsets[i] until textOffsets[i + 1]]
+    private final char[] textChars;
+    private final int[] textOffsets;
+    private final int[] weights;
+    // Entry ids by decreasing weight
+    private final int[] byWeight;
+    // The word ids of entry i, sorted, are entryWords[entryWordOffsets[i] until entryWordOffsets[i + 1]]
+    private final int[] entryWordOffsets;
+    private final int[] entryWords;
+
+    // Words, sorted and unique, word w is wordChars[wordOffsets[w] until wordOffsets[w + 1]]
+    private final char[] wordChars;
+    private final int[] wordOffsets;
+    // The blocks of word w are wordFirstBlock[w] until wordFirstBlock[w + 1], it has postingCounts[w] entries
+    private final int[] wordFirstBlock;
+    private final int[] postingCounts;
+    // Block b starts at postings[blockOffsets[b]], its last entry is blockLastEntry[b]
+    private final byte[] postings;
+    private final int[] blockOffsets;
+    private final int[] blockLastEntry;
+
+    InvertedIndex(TextNormalizer normalizer, char[] textChars, int[] textOffsets, int[] weights,
+                  int[] byWeight, int[] entryWordOffsets, int[] entryWords, char[] wordChars, int[] wordOffsets, int[] wordFirstBlock, int[] postingCounts,
+                  byte[] postings, int[] blockOffsets, int[] blockLastEntry) {
+        this.normalizer = normalizer;
+        this.textChars = textChars;
+        this.textOffsets = textOffsets;
+        this.weights = weights;
+        this.byWeight = byWeight;
+        this.entryWordOffsets = entryWordOffsets;
+        this.entryWords = entryWords;
+        this.wordChars = wordChars;
+        this.wordOffsets = wordOffsets;
+        this.wordFirstBlock = wordFirstBlock;
+        this.postingCounts = postingCounts;
+        this.postings = postings;
+        this.blockOffsets = blockOffsets;
+        this.blockLastEntry = blockLastEntry;
+    }
+
+    /**
+     * @return number of entries in the index
+     */
+    public int size() {
+        return weights.length;
+    }
+
+    /**
+     * @return number of distinct words in the entries
+     */
+    public int getWordCount() {
+        return postingCounts.length;
+    }
+
+    /**
+     * @param id entry id, from 0 to size() - 1, in the order the entries were added
+     * @return the entry as it was added
+     */
+    public String getText(int id) {
+        return new String(textChars, textOffsets[id], textOffsets[id + 1] - textOffsets[id]);
+    }
+
+    public int getWeight(int id) {
+        return weights[id];
+    }
+
+    public TextNormalizer getNormalizer() {
+        return normalizer;
+    }
+
+    /**
+     * Finds the entries containing every word of the query, the last one as a prefix, that have the highest
+     * weights. Entries with the same weight are returned in the order they were added.
+     *
+     * @param query   words to find, normalized like the entries
+     * @param results receives the entry ids, best first, its length is the maximum number of results
+     * @return number of ids written to results
+     */
+    public int search(CharSequence query, int[] results) {
+        if (results.length == 0) {
+            return 0;
+        }
+        String normalized = normalizer.normalize(query);
+        if (normalized.isEmpty()) {
+            return 0;
+        }
+
+        // Whole words, all but the last
+        int lastStart = normalized.lastIndexOf(' ') + 1;
+        int[] words = new int[8];
+        int wordCount = 0;
+        int start = 0;
+        while (start < lastStart) {
+            int end = normalized.indexOf(' ', start);
+            int word = findWord(normalized, start, end);
+            if (word < 0) {
+                return 0;
+            }
+            if (wordCount == words.length) {
+                words = Arrays.copyOf(words, wordCount * 2);
+            }
+            words[wordCount++] = word;
+            start = end + 1;
+        }
+        int prefixFrom = lowerBound(normalized, lastStart, normalized.length());
+        int prefixTo = upperBound(normalized, lastStart, normalized.length(), prefixFrom);
+        if (prefixFrom == prefixTo) {
+            return 0;
+        }
+
+        if (wordCount == 0 && countPostings(prefixFrom, prefixTo) > size() / UNION_SCAN_RATIO) {
+            return scanByWeight(prefixFrom, prefixTo, results);
+        }
+        TopKRanker ranker = new TopKRanker(results.length);
+        if (wordCount == 0) {
+            rankUnion(prefixFrom, prefixTo, ranker);
+        } else {
+            int[] candidates = intersect(words, wordCount);
+            int candidateCount = filterByPrefix(candidates, candidates.length, prefixFrom, prefixTo);
+            for (int i = 0; i < candidateCount; i++) {
+                ranker.offer(candidates[i], weights[candidates[i]]);
+            }
+        }
+        return ranker.drain(results, null);
+    }
+
+    /**
+     * @return the entries containing every word, sorted
+     */
+    private int[] intersect(int[] words, int wordCount) {
+        // Shortest lists first, the candidates only shrink
+        long[] bySize = new long[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            bySize[i] = ((long) postingCounts[words[i]] << 32) | words[i];
+        }
+        Arrays.sort(bySize);
+
+        PostingCursor cursor = new PostingCursor();
+        cursor.reset((int) bySize[0]);
+        int[] candidates = new int[postingCounts[(int) bySize[0]]];
+        int count = 0;
+        for (int entry = cursor.next(); entry != NO_ENTRY; entry = cursor.next()) {
+            candidates[count++] = entry;
+        }
+        for (int i = 1; i < wordCount && count > 0; i++) {
+            if (bySize[i] == bySize[i - 1]) {
+                // Same word twice in the query
+                continue;
+            }
+            cursor.reset((int) bySize[i]);
+            count = intersect(candidates, count, cursor);
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Keeps the candidates found in the posting list, in place
+     *
+     * @return number of candidates kept
+     */
+    static int intersect(int[] candidates, int count, PostingCursor cursor) {
+        int kept = 0;
+        int i = 0;
+        while (i < count) {
+            int entry = cursor.advance(candidates[i]);
+            if (entry == NO_ENTRY) {
+                break;
+            }
+            if (entry == candidates[i]) {
+                candidates[kept++] = entry;
+                i++;
+            } else {
+                // The list jumped past some candidates, skip them too
+                i = gallop(candidates, i + 1, count, entry);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return the first index from from whose value is at least target, or to
+     */
+    static int gallop(int[] values, int from, int to, int target) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && values[high] < target) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Keeps the sorted candidates containing one of the words, in place
+     *
+     * @return number of candidates kept
+     */
+    private int filterByPrefix(int[] candidates, int count, int wordFrom, int wordTo) {
+        if (count < wordTo - wordFrom) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (hasWord(candidates[i], wordFrom, wordTo)) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            return kept;
+        }
+
+        boolean[] found = new boolean[count];
+        int foundCount = 0;
+        PostingCursor cursor = new PostingCursor();
+        for (int word = wordFrom; word < wordTo && foundCount < count; word++) {
+            cursor.reset(word);
+            for (int i = 0; i < count; i++) {
+                if (found[i]) {
+                    continue;
+                }
+                int entry = cursor.advance(candidates[i]);
+                if (entry == NO_ENTRY) {
+                    break;
+                }
+                if (entry == candidates[i]) {
+                    found[i] = true;
+                    foundCount++;
+                }
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (found[i]) {
+                candidates[kept++] = candidates[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return true if the entry contains a word from wordFrom until wordTo
+     */
+    private boolean hasWord(int entry, int wordFrom, int wordTo) {
+        for (int i = entryWordOffsets[entry]; i < entryWordOffsets[entry + 1]; i++) {
+            int word = entryWords[i];
+            if (word >= wordTo) {
+                return false;
+            }
+            if (word >= wordFrom) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int countPostings(int wordFrom, int wordTo) {
+        long count = 0;
+        for (int word = wordFrom; word < wordTo; word++) {
+            count += postingCounts[word];
+        }
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Writes the best entries containing any of the words, common words match early in the scan
+     *
+     * @return number of ids written to results
+     */
+    private int scanByWeight(int wordFrom, int wordTo, int[] results) {
+        int count = 0;
+        for (int i = 0; i < byWeight.length && count < results.length; i++) {
+            if (hasWord(byWeight[i], wordFrom, wordTo)) {
+                results[count++] = byWeight[i];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ranks the entries containing any of the words, each once
+     */
+    private void rankUnion(int wordFrom, int wordTo, TopKRanker ranker) {
+        if (wordTo - wordFrom == 1) {
+            PostingCursor cursor = new PostingCursor();
+            cursor.reset(wordFrom);
+            for (int entry = cursor.next(); entry != NO_ENTRY; entry = cursor.next()) {
+                ranker.offer(entry, weights[entry]);
+            }
+            return;
+        }
+        long[] seen = new long[(size() + 63) >>> 6];
+        PostingCursor cursor = new PostingCursor();
+        for (int word = wordFrom; word < wordTo; word++) {
+            cursor.reset(word);
+            for (int entry = cursor.next(); entry != NO_ENTRY; entry = cursor.next()) {
+                seen[entry >>> 6] |= 1L << entry;
+            }
+        }
+        // In id order, so equal weights keep the first added
+        for (int i = 0; i < seen.length; i++) {
+            long bits = seen[i];
+            while (bits != 0) {
+                int entry = (i << 6) + Long.numberOfTrailingZeros(bits);
+                ranker.offer(entry, weights[entry]);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * @return the id of the word text[start until end], or -1
+     */
+    private int findWord(String text, int start, int end) {
+        int word = lowerBound(text, start, end);
+        if (word < postingCounts.length && compareWord(word, text, start, end) == 0) {
+            return word;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the first word not sorting before text[start until end]
+     */
+    private int lowerBound(String text, int start, int end) {
+        int low = 0;
+        int high = postingCounts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareWord(mid, text, start, end) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return the first word from from that doesn't start with text[start until end]
+     */
+    private int upperBound(String text, int start, int end, int from) {
+        int low = from;
+        int high = postingCounts.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startsWith(mid, text, start, end)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compareWord(int word, String text, int start, int end) {
+        int offset = wordOffsets[word];
+        int length = wordOffsets[word + 1] - offset;
+        int common = Math.min(length, end - start);
+        for (int i = 0; i < common; i++) {
+            int diff = wordChars[offset + i] - text.charAt(start + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - (end - start);
+    }
+
+    private boolean startsWith(int word, String text, int start, int end) {
+        int offset = wordOffsets[word];
+        if (wordOffsets[word + 1] - offset < end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (wordChars[offset + i - start] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    public static final class Builder {
+        private final TextNormalizer normalizer;
+        private final StringBuilder wordBuffer = new StringBuilder();
+        private final List<String> texts = new ArrayList<>();
+        private final Map<String, PostingList> postingLists = new HashMap<>();
+        private int[] weights = new int[16];
+
+        /**
+         * @param normalizer splits the entries and the queries into words
+         */
+        public Builder(TextNormalizer normalizer) {
+            this.normalizer = normalizer;
+        }
+
+        /**
+         * Adds an entry with weight 0
+         */
+        public Builder add(String text) {
+            return add(text, 0);
+        }
+
+        /**
+         * Adds an entry, its id is the number of entries added before it
+         *
+         * @param weight ranking weight, higher first, must not be negative
+         */
+        public Builder add(String text, int weight) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight must not be negative: " + weight);
+            }
+            int id = texts.size();
+            if (id == weights.length) {
+                weights = Arrays.copyOf(weights, id * 2);
+            }
+            weights[id] = weight;
+            texts.add(text);
+
+            normalizer.normalize(text, wordBuffer);
+            int start = 0;
+            int length = wordBuffer.length();
+            while (start < length) {
+                int end = wordBuffer.indexOf(" ", start);
+                if (end < 0) {
+                    end = length;
+                }
+                String word = wordBuffer.substring(start, end);
+                PostingList list = postingLists.get(word);
+                if (list == null) {
+                    list = new PostingList();
+                    postingLists.put(word, list);
+                }
+                list.add(id);
+                start = end + 1;
+            }
+            return this;
+        }
+
+        public InvertedIndex build() {
+            int size = texts.size();
+            int totalChars = 0;
+            for (int i = 0; i < size; i++) {
+                totalChars += texts.get(i).length();
+            }
+            char[] textChars = new char[totalChars];
+            int[] textOffsets = pack(texts.toArray(new String[size]), textChars);
+
+            String[] words = postingLists.keySet().toArray(new String[0]);
+            Arrays.sort(words);
+            int wordCount = words.length;
+            int totalWordChars = 0;
+            int blockCount = 0;
+            int[] entryWordOffsets = new int[size + 1];
+            for (String word : words) {
+                PostingList list = postingLists.get(word);
+                totalWordChars += word.length();
+                blockCount += (list.size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+                for (int i = 0; i < list.size; i++) {
+                    entryWordOffsets[list.entries[i] + 1]++;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                entryWordOffsets[i + 1] += entryWordOffsets[i];
+            }
+            // Filled in word order, so the words of each entry come out sorted
+            int[] entryWords = new int[entryWordOffsets[size]];
+            int[] filled = Arrays.copyOf(entryWordOffsets, size);
+            char[] wordChars = new char[totalWordChars];
+            int[] wordOffsets = pack(words, wordChars);
+
+            int[] wordFirstBlock = new int[wordCount + 1];
+            int[] postingCounts = new int[wordCount];
+            int[] blockOffsets = new int[blockCount];
+            int[] blockLastEntry = new int[blockCount];
+            // Most deltas fit in one or two bytes
+            byte[] postings = new byte[blockCount * BLOCK_SIZE];
+            int position = 0;
+            int block = 0;
+            for (int w = 0; w < wordCount; w++) {
+                PostingList list = postingLists.get(words[w]);
+                wordFirstBlock[w] = block;
+                postingCounts[w] = list.size;
+                int previous = -1;
+                for (int i = 0; i < list.size; i++) {
+                    if (i % BLOCK_SIZE == 0) {
+                        blockOffsets[block] = position;
+                        block++;
+                    }
+                    int entry = list.entries[i];
+                    entryWords[filled[entry]++] = w;
+                    if (postings.length - position < 5) {
+                        postings = Arrays.copyOf(postings, postings.length * 2);
+                    }
+                    position = writeVarint(postings, position, entry - previous);
+                    previous = entry;
+                    blockLastEntry[block - 1] = entry;
+                }
+            }
+            wordFirstBlock[wordCount] = block;
+
+            int[] entryWeights = Arrays.copyOf(weights, size);
+            return new InvertedIndex(normalizer, textChars, textOffsets, entryWeights,
+                    sortByWeight(entryWeights), entryWordOffsets, entryWords, wordChars, wordOffsets, wordFirstBlock, postingCounts,
+                    Arrays.copyOf(postings, position), blockOffsets, blockLastEntry);
+        }
+
+        /**
+         * @return the entry ids by decreasing weight, then increasing id
+         */
+        static int[] sortByWeight(int[] weights) {
+            int size = weights.length;
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) ~weights[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = (int) keys[i];
+            }
+            return order;
+        }
+
+        /**
+         * @return the position after the value
+         */
+        private static int writeVarint(byte[] bytes, int position, int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+            return position;
+        }
+
+        /**
+         * Copies the strings into chars
+         *
+         * @return the offsets of the strings in chars, followed by the end offset
+         */
+        static int[] pack(String[] strings, char[] chars) {
+            int[] offsets = new int[strings.length + 1];
+            int offset = 0;
+            for (int i = 0; i < strings.length; i++) {
+                offsets[i] = offset;
+                strings[i].getChars(0, strings[i].length(), chars, offset);
+                offset += strings[i].length();
+            }
+            offsets[strings.length] = offset;
+            return offsets;
+        }
+    }
+
+
+    /**
+     * Decodes the posting list of a word, block by block
+     */
+    final class PostingCursor {
+        private int firstBlock;
+        private int blockEnd;
+        private int count;
+        private int block;
+        private int remaining;
+        private int position;
+        private int entry;
+
+        void reset(int word) {
+            firstBlock = wordFirstBlock[word];
+            blockEnd = wordFirstBlock[word + 1];
+            count = postingCounts[word];
+            loadBlock(firstBlock, -1);
+        }
+
+        /**
+         * @return the next entry, or NO_ENTRY at the end of the list
+         */
+        int next() {
+            if (remaining == 0) {
+                if (block + 1 >= blockEnd) {
+                    return entry = NO_ENTRY;
+                }
+                loadBlock(block + 1, entry);
+            }
+            remaining--;
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return entry += delta;
+        }
+
+        /**
+         * @return the first entry from the current one that is at least target, or NO_ENTRY
+         */
+        int advance(int target) {
+            if (entry >= target) {
+                return entry;
+            }
+            if (blockLastEntry[block] < target) {
+                // Gallop over the skip entries to the first block that can hold the target
+                int found = gallop(blockLastEntry, block + 1, blockEnd, target);
+                if (found == blockEnd) {
+                    block = blockEnd - 1;
+                    remaining = 0;
+                    return entry = NO_ENTRY;
+                }
+                loadBlock(found, blockLastEntry[found - 1]);
+            }
+            int next;
+            do {
+                next = next();
+            } while (next < target);
+            return next;
+        }
+
+        private void loadBlock(int index, int previousEntry) {
+            block = index;
+            position = blockOffsets[index];
+            remaining = index + 1 < blockEnd ? BLOCK_SIZE : count - (index - firstBlock) * BLOCK_SIZE;
+            entry = previousEntry;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.util.Arrays;
+
+/**
+ * Growable binary max-heap of primitive long keys, each carrying an int value
+ */
+final class LongIntHeap {
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    LongIntHeap(int initialCapacity) {
+        keys = new long[Math.max(1, initialCapacity)];
+        values = new int[keys.length];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    long peekKey() {
+        return keys[0];
+    }
+
+    void push(long key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] >= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Removes the entry with the highest key
+     *
+     * @return its value
+     */
+    int pop() {
+        int top = values[0];
+        long lastKey = keys[--size];
+        int lastValue = values[size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && keys[child + 1] > keys[child]) {
+                child++;
+            }
+            if (lastKey >= keys[child]) {
+                break;
+            }
+            keys[i] = keys[child];
+            values[i] = values[child];
+            i = child;
+        }
+        keys[i] = lastKey;
+        values[i] = lastValue;
+        return top;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.util.Arrays;
+
+/**
+ * Growing list of the entries containing a word or trigram, while an index is built.
+ * Sorted since entries are added in id order.
+ */
+final class PostingList {
+    int[] entries = new int[4];
+    int size;
+
+    void add(int entry) {
+        if (size > 0 && entries[size - 1] == entry) {
+            // Repeated in the entry
+            return;
+        }
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size++] = entry;
+    }
+}
@@ -0,0 +1,499 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable prefix index over a set of weighted terms, answers top-K completions of a prefix.
+ * <p>
+ * Terms are kept sorted in a single char pool and the index is a path compressed trie packed
+ * in int arrays, one slot per node and no node objects. Nodes are laid out breadth first so the
+ * children of a node are contiguous and sorted by their first char. Every node covers a
+ * contiguous range of the sorted terms and knows the highest weight in it, which drives a best
+ * first completion search that only visits the nodes leading to the K best terms.
+ * <p>
+ * A path compressed trie has at most two nodes per term, 300k terms take about 12 MB of int
+ * arrays plus the chars of the terms. The arrays are read through buffers, heap ones once built
+ * or views of a memory mapped file once loaded by {@link IndexSnapshot}. Instances are thread safe.
+ * <p>
+ * With a {@link TextNormalizer} the trie holds the normalized terms, normalized once while building, and queries
+ * are normalized the same way. The original text of each term is kept in a second char pool for display.
+ */
+public final class PrefixIndex {
+    static final int NO_NODE = -1;
+    private static final long TERM_FLAG = 1L;
+    private static final long NODE_FLAG = 0L;
+    private static final int INDEX_MASK = 0x7FFFFFFF;
+
+    // Terms, sorted and unique, term i is chars[termOffsets[i] until termOffsets[i + 1]]
+    final CharBuffer chars;
+    final IntBuffer termOffsets;
+    final IntBuffer weights;
+    // Original texts of the normalized terms, null without a normalizer or when every term is already normalized
+    final CharBuffer displayChars;
+    final IntBuffer displayOffsets;
+    final TextNormalizer normalizer;
+
+    // Nodes, the children of node n are nodeFirstChild[n] until nodeFirstChild[n + 1]
+    final IntBuffer nodeFirstChild;
+    final IntBuffer nodeDepth;
+    final IntBuffer nodeRangeStart;
+    final IntBuffer nodeRangeEnd;
+    final IntBuffer nodeMaxWeight;
+
+    /**
+     * The buffers are only read with absolute gets, their positions must stay 0
+     */
+    PrefixIndex(CharBuffer chars, IntBuffer termOffsets, IntBuffer weights,
+                CharBuffer displayChars, IntBuffer displayOffsets, TextNormalizer normalizer,
+                IntBuffer nodeFirstChild, IntBuffer nodeDepth, IntBuffer nodeRangeStart, IntBuffer nodeRangeEnd,
+                IntBuffer nodeMaxWeight) {
+        this.chars = chars;
+        this.termOffsets = termOffsets;
+        this.weights = weights;
+        this.displayChars = displayChars;
+        this.displayOffsets = displayOffsets;
+        this.normalizer = normalizer;
+        this.nodeFirstChild = nodeFirstChild;
+        this.nodeDepth = nodeDepth;
+        this.nodeRangeStart = nodeRangeStart;
+        this.nodeRangeEnd = nodeRangeEnd;
+        this.nodeMaxWeight = nodeMaxWeight;
+    }
+
+    /**
+     * @return number of terms in the index
+     */
+    public int size() {
+        return weights.limit();
+    }
+
+    /**
+     * @param id term id, from 0 to size() - 1, ids follow the sorted order of the terms
+     * @return the term as it was added, when several added terms normalize the same, the one with the highest weight
+     */
+    public String getTerm(int id) {
+        if (displayChars != null) {
+            return displayChars.subSequence(displayOffsets.get(id), displayOffsets.get(id + 1)).toString();
+        }
+        return getKey(id);
+    }
+
+    /**
+     * @return the normalized term the index matches on
+     */
+    public String getKey(int id) {
+        return chars.subSequence(termOffsets.get(id), termOffsets.get(id + 1)).toString();
+    }
+
+    /**
+     * @return the normalizer of the terms and queries, null if they are matched as they are
+     */
+    public TextNormalizer getNormalizer() {
+        return normalizer;
+    }
+
+    public int getWeight(int id) {
+        return weights.get(id);
+    }
+
+    /**
+     * Finds the terms starting with the prefix that have the highest weights.
+     * Terms with the same weight are returned in sorted order.
+     *
+     * @param prefix  prefix to complete
+     * @param results receives the term ids, best first, its length is the maximum number of results
+     * @return number of ids written to results
+     */
+    public int complete(CharSequence prefix, int[] results) {
+        int node = findNode(normalize(prefix));
+        if (node == NO_NODE || results.length == 0) {
+            return 0;
+        }
+        return collectTop(node, results, new LongIntHeap(results.length * 4));
+    }
+
+    /**
+     * @return number of terms starting with the prefix
+     */
+    public int countPrefix(CharSequence prefix) {
+        int node = findNode(normalize(prefix));
+        return node == NO_NODE ? 0 : nodeRangeEnd.get(node) - nodeRangeStart.get(node);
+    }
+
+    private CharSequence normalize(CharSequence prefix) {
+        return normalizer == null ? prefix : normalizer.normalize(prefix);
+    }
+
+    int termLength(int term) {
+        return termOffsets.get(term + 1) - termOffsets.get(term);
+    }
+
+    /**
+     * @return the highest node whose terms all start with the prefix, or NO_NODE
+     */
+    int findNode(CharSequence prefix) {
+        return narrow(0, 0, prefix);
+    }
+
+    /**
+     * Continues a prefix lookup from a node found for a shorter prefix
+     *
+     * @param node    node whose terms all start with the first matched chars of the prefix
+     * @param matched number of chars of the prefix already matched, at most the node depth
+     * @return the highest node whose terms all start with the prefix, or NO_NODE
+     */
+    int narrow(int node, int matched, CharSequence prefix) {
+        int length = prefix.length();
+        int depth = nodeDepth.get(node);
+        int base = termOffsets.get(nodeRangeStart.get(node));
+        int end = Math.min(depth, length);
+        for (int i = matched; i < end; i++) {
+            if (chars.get(base + i) != prefix.charAt(i)) {
+                return NO_NODE;
+            }
+        }
+        return length <= depth ? node : descend(node, depth, prefix);
+    }
+
+    private int descend(int node, int depth, CharSequence prefix) {
+        int length = prefix.length();
+        while (depth < length) {
+            int child = findChild(node, depth, prefix.charAt(depth));
+            if (child == NO_NODE) {
+                return NO_NODE;
+            }
+            int base = termOffsets.get(nodeRangeStart.get(child));
+            int end = Math.min(nodeDepth.get(child), length);
+            for (int i = depth + 1; i < end; i++) {
+                if (chars.get(base + i) != prefix.charAt(i)) {
+                    return NO_NODE;
+                }
+            }
+            node = child;
+            depth = nodeDepth.get(child);
+        }
+        return node;
+    }
+
+    boolean isTerminal(int node) {
+        int term = nodeRangeStart.get(node);
+        return term < nodeRangeEnd.get(node) && termLength(term) == nodeDepth.get(node);
+    }
+
+    int collectTop(int node, int[] results, LongIntHeap heap) {
+        heap.clear();
+        pushNode(heap, node);
+        return drainTop(heap, results, 0);
+    }
+
+    void pushNode(LongIntHeap heap, int node) {
+        heap.push(nodeKey(node), node);
+    }
+
+    void pushTerm(LongIntHeap heap, int term) {
+        heap.push(termKey(term), term);
+    }
+
+    /**
+     * Pops the best terms of the seeded nodes and terms until results is full or the heap is empty
+     *
+     * @param count number of results already written
+     * @return number of results written, including the first count
+     */
+    int drainTop(LongIntHeap heap, int[] results, int count) {
+        while (count < results.length && !heap.isEmpty()) {
+            boolean isTerm = (heap.peekKey() & TERM_FLAG) != 0;
+            int index = heap.pop();
+            if (isTerm) {
+                results[count++] = index;
+                continue;
+            }
+            if (isTerminal(index)) {
+                int term = nodeRangeStart.get(index);
+                heap.push(termKey(term), term);
+            }
+            for (int child = nodeFirstChild.get(index); child < nodeFirstChild.get(index + 1); child++) {
+                heap.push(nodeKey(child), child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Orders by weight, then by lowest term id. A node ties on the first term of its range,
+     * no term of the node can sort before that one, so equal weights come out in sorted order.
+     */
+    private long nodeKey(int node) {
+        return rankKey(nodeMaxWeight.get(node), nodeRangeStart.get(node), NODE_FLAG);
+    }
+
+    private long termKey(int term) {
+        return rankKey(weights.get(term), term, TERM_FLAG);
+    }
+
+    private static long rankKey(int weight, int term, long flag) {
+        return ((long) weight << 32) | ((long) (INDEX_MASK - term) << 1) | flag;
+    }
+
+    private int findChild(int node, int depth, char c) {
+        int low = nodeFirstChild.get(node);
+        int high = nodeFirstChild.get(node + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = chars.get(termOffsets.get(nodeRangeStart.get(mid)) + depth);
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NO_NODE;
+    }
+
+
+    public static final class Builder {
+        private final TextNormalizer normalizer;
+        private final List<String> terms = new ArrayList<>();
+        // Same as terms without a normalizer
+        private final List<String> keys = new ArrayList<>();
+        private final StringBuilder keyBuffer = new StringBuilder();
+        private int[] weights = new int[16];
+
+        /**
+         * Builds an index matching the terms as they are
+         */
+        public Builder() {
+            this(null);
+        }
+
+        /**
+         * @param normalizer normalizes the terms and the queries, null to match them as they are
+         */
+        public Builder(TextNormalizer normalizer) {
+            this.normalizer = normalizer;
+        }
+
+        /**
+         * Adds a term with weight 0
+         */
+        public Builder add(String term) {
+            return add(term, 0);
+        }
+
+        /**
+         * Adds a term, empty terms are ignored and duplicates keep the highest weight.
+         * With a normalizer, terms are duplicates when they normalize the same.
+         *
+         * @param weight ranking weight, higher first, must not be negative
+         */
+        public Builder add(String term, int weight) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight must not be negative: " + weight);
+            }
+            String key = term;
+            if (normalizer != null) {
+                normalizer.normalize(term, keyBuffer);
+                key = keyBuffer.length() == term.length() && term.contentEquals(keyBuffer) ? term : keyBuffer.toString();
+            }
+            if (key.isEmpty()) {
+                return this;
+            }
+            if (terms.size() == weights.length) {
+                weights = Arrays.copyOf(weights, weights.length * 2);
+            }
+            weights[terms.size()] = weight;
+            terms.add(term);
+            keys.add(key);
+            return this;
+        }
+
+        public PrefixIndex build() {
+            int size = terms.size();
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+
+            int unique = 0;
+            int totalChars = 0;
+            int totalDisplayChars = 0;
+            boolean normalized = true;
+            int[] sortedWeights = new int[size];
+            String[] sortedKeys = new String[size];
+            String[] sortedTerms = new String[size];
+            for (int i = 0; i < size; i++) {
+                String key = keys.get(order[i]);
+                String term = terms.get(order[i]);
+                int weight = weights[order[i]];
+                if (unique > 0 && sortedKeys[unique - 1].equals(key)) {
+                    if (weight > sortedWeights[unique - 1]) {
+                        totalDisplayChars += term.length() - sortedTerms[unique - 1].length();
+                        sortedTerms[unique - 1] = term;
+                        sortedWeights[unique - 1] = weight;
+                    }
+                    continue;
+                }
+                sortedKeys[unique] = key;
+                sortedTerms[unique] = term;
+                sortedWeights[unique] = weight;
+                totalChars += key.length();
+                totalDisplayChars += term.length();
+                unique++;
+            }
+
+            char[] chars = new char[totalChars];
+            int[] termOffsets = pack(sortedKeys, unique, chars);
+            char[] displayChars = null;
+            int[] displayOffsets = null;
+            for (int i = 0; i < unique && normalized; i++) {
+                normalized = sortedKeys[i].equals(sortedTerms[i]);
+            }
+            if (!normalized) {
+                displayChars = new char[totalDisplayChars];
+                displayOffsets = pack(sortedTerms, unique, displayChars);
+            }
+
+            return new NodeBuilder(chars, termOffsets, Arrays.copyOf(sortedWeights, unique),
+                    displayChars, displayOffsets, normalizer).build();
+        }
+
+        /**
+         * Copies the first count strings into chars
+         *
+         * @return the offsets of the strings in chars, followed by the end offset
+         */
+        private static int[] pack(String[] strings, int count, char[] chars) {
+            int[] offsets = new int[count + 1];
+            int offset = 0;
+            for (int i = 0; i < count; i++) {
+                offsets[i] = offset;
+                strings[i].getChars(0, strings[i].length(), chars, offset);
+                offset += strings[i].length();
+            }
+            offsets[count] = offset;
+            return offsets;
+        }
+    }
+
+
+    /**
+     * Lays out the trie nodes breadth first over the sorted terms
+     */
+    private static final class NodeBuilder {
+        private final char[] chars;
+        private final int[] termOffsets;
+        private final int[] weights;
+        private final char[] displayChars;
+        private final int[] displayOffsets;
+        private final TextNormalizer normalizer;
+
+        private final int[] firstChild;
+        private final int[] depths;
+        private final int[] rangeStarts;
+        private final int[] rangeEnds;
+        private final int[] maxWeights;
+
+        NodeBuilder(char[] chars, int[] termOffsets, int[] weights,
+                    char[] displayChars, int[] displayOffsets, TextNormalizer normalizer) {
+            this.chars = chars;
+            this.termOffsets = termOffsets;
+            this.weights = weights;
+            this.displayChars = displayChars;
+            this.displayOffsets = displayOffsets;
+            this.normalizer = normalizer;
+
+            // A path compressed trie never has more than one internal node per leaf, plus the root
+            int capacity = 2 * weights.length + 1;
+            firstChild = new int[capacity + 1];
+            depths = new int[capacity];
+            rangeStarts = new int[capacity];
+            rangeEnds = new int[capacity];
+            maxWeights = new int[capacity];
+        }
+
+        PrefixIndex build() {
+            int count = 1;
+            rangeStarts[0] = 0;
+            rangeEnds[0] = weights.length;
+            depths[0] = 0;
+
+            for (int node = 0; node < count; node++) {
+                firstChild[node] = count;
+                int depth = depths[node];
+                int term = rangeStarts[node];
+                int end = rangeEnds[node];
+
+                // A term ending at this node sorts before the longer ones
+                if (term < end && termLength(term) == depth) {
+                    term++;
+                }
+                while (term < end) {
+                    int groupEnd = groupEnd(term, end, depth);
+                    rangeStarts[count] = term;
+                    rangeEnds[count] = groupEnd;
+                    depths[count] = commonPrefixLength(term, groupEnd - 1);
+                    count++;
+                    term = groupEnd;
+                }
+            }
+            firstChild[count] = count;
+
+            // Children always come after their parent
+            for (int node = count - 1; node >= 0; node--) {
+                int term = rangeStarts[node];
+                int max = term < rangeEnds[node] && termLength(term) == depths[node] ? weights[term] : 0;
+                for (int child = firstChild[node]; child < firstChild[node + 1]; child++) {
+                    max = Math.max(max, maxWeights[child]);
+                }
+                maxWeights[node] = max;
+            }
+
+            return new PrefixIndex(CharBuffer.wrap(chars), IntBuffer.wrap(termOffsets), IntBuffer.wrap(weights),
+                    displayChars == null ? null : CharBuffer.wrap(displayChars),
+                    displayOffsets == null ? null : IntBuffer.wrap(displayOffsets), normalizer,
+                    IntBuffer.wrap(firstChild, 0, count + 1).slice(), IntBuffer.wrap(depths, 0, count).slice(),
+                    IntBuffer.wrap(rangeStarts, 0, count).slice(), IntBuffer.wrap(rangeEnds, 0, count).slice(),
+                    IntBuffer.wrap(maxWeights, 0, count).slice());
+        }
+
+        private int termLength(int term) {
+            return termOffsets[term + 1] - termOffsets[term];
+        }
+
+        /**
+         * @return end of the run of terms, starting at from, that share the char at depth
+         */
+        private int groupEnd(int from, int end, int depth) {
+            char c = chars[termOffsets[from] + depth];
+            int low = from + 1;
+            int high = end - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (chars[termOffsets[mid] + depth] == c) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        private int commonPrefixLength(int first, int last) {
+            int length = Math.min(termLength(first), termLength(last));
+            int a = termOffsets[first];
+            int b = termOffsets[last];
+            int i = 0;
+            while (i < length && chars[a + i] == chars[b + i]) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.ferfalk.simplesearchview.engine;
+
+/**
+ * Completes the successive queries of one search session over a {@link PrefixIndex}.
+ * <p>
+ * The terms matching a query are the range below one trie node. When the next query extends the
+ * previous one, as it does while typing, the lookup narrows that previous range by resuming from
+ * its node, only the typed chars are compared and the rest of the corpus is never touched.
+ * Backspaces and edits before the end of the previous query start over from the root.
+ * <p>
+ * Queries are normalized with the {@link TextNormalizer} of the index into a reused buffer, so the text of an
+ * EditText can be passed as it is, without copying it to a String first.
+ * <p>
+ * Keeps state between calls and reuses its buffers, not thread safe.
+ */
+public final class PrefixSearcher {
+    private static final int HEAP_CAPACITY = 64;
+
+    private final PrefixIndex index;
+    private final LongIntHeap heap = new LongIntHeap(HEAP_CAPACITY);
+    private final StringBuilder normalizedQuery = new StringBuilder();
+    private final StringBuilder lastQuery = new StringBuilder();
+    private boolean hasLastQuery = false;
+    private int lastNode = PrefixIndex.NO_NODE;
+
+    public PrefixSearcher(PrefixIndex index) {
+        this.index = index;
+    }
+
+    public PrefixIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Finds the terms starting with the query that have the highest weights, see {@link PrefixIndex#complete}
+     *
+     * @param query   prefix to complete
+     * @param results receives the term ids, best first, its length is the maximum number of results
+     * @return number of ids written to results
+     */
+    public int complete(CharSequence query, int[] results) {
+        int node = findNode(normalize(query));
+        if (node == PrefixIndex.NO_NODE || results.length == 0) {
+            return 0;
+        }
+        return index.collectTop(node, results, heap);
+    }
+
+    /**
+     * @return number of terms matching the last query
+     */
+    public int getMatchCount() {
+        return lastNode == PrefixIndex.NO_NODE ? 0 : index.nodeRangeEnd.get(lastNode) - index.nodeRangeStart.get(lastNode);
+    }
+
+    /**
+     * Forgets the previous query, the next one searches the whole index
+     */
+    public void reset() {
+        hasLastQuery = false;
+        lastNode = PrefixIndex.NO_NODE;
+        lastQuery.setLength(0);
+    }
+
+    private CharSequence normalize(CharSequence query) {
+        TextNormalizer normalizer = index.getNormalizer();
+        if (normalizer == null) {
+            return query;
+        }
+        normalizer.normalize(query, normalizedQuery);
+        return normalizedQuery;
+    }
+
+    private int findNode(CharSequence query) {
+        int node;
+        if (hasLastQuery && extendsLastQuery(query)) {
+            // Nothing matched a shorter prefix, nothing can match a longer one
+            node = lastNode == PrefixIndex.NO_NODE ? PrefixIndex.NO_NODE : index.narrow(lastNode, lastQuery.length(), query);
+        } else {
+            node = index.findNode(query);
+        }
+
+        lastNode = node;
+        hasLastQuery = true;
+        lastQuery.setLength(0);
+        lastQuery.append(query);
+        return node;
+    }
+
+    private boolean extendsLastQuery(CharSequence query) {
+        int length = lastQuery.length();
+        if (query.length() < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (query.charAt(i) != lastQuery.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,148 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of query results, bounded by entry count and by an estimate of their size in bytes.
+ * Queries are normalized before being used as keys, so equivalent queries share their results.
+ * Instances are thread safe.
+ */
+public final class QueryCache<V> {
+
+    public interface Weigher<V> {
+        /**
+         * @return estimated size in bytes of the cached value
+         */
+        long weigh(V value);
+    }
+
+    public interface KeyNormalizer {
+        /**
+         * @return the cache key of the query, queries with equal keys must have equal results
+         */
+        String normalize(String query);
+    }
+
+    private static final KeyNormalizer IDENTITY = query -> query;
+
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Weigher<V> weigher;
+    private final KeyNormalizer keyNormalizer;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private long bytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * @param maxEntries maximum number of cached queries
+     * @param maxBytes   maximum estimated size of the cached values
+     * @param weigher    estimates the size of a value
+     */
+    public QueryCache(int maxEntries, long maxBytes, Weigher<V> weigher) {
+        this(maxEntries, maxBytes, weigher, IDENTITY);
+    }
+
+    /**
+     * @param maxEntries    maximum number of cached queries
+     * @param maxBytes      maximum estimated size of the cached values
+     * @param weigher       estimates the size of a value
+     * @param keyNormalizer maps queries to cache keys
+     */
+    public QueryCache(int maxEntries, long maxBytes, Weigher<V> weigher, KeyNormalizer keyNormalizer) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+        this.keyNormalizer = keyNormalizer;
+    }
+
+    /**
+     * @return the cached results of the query, or null
+     */
+    public synchronized V get(String query) {
+        Entry<V> entry = entries.get(keyNormalizer.normalize(query));
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return entry.value;
+    }
+
+    public synchronized void put(String query, V value) {
+        long size = weigher.weigh(value);
+        if (size > maxBytes) {
+            return;
+        }
+
+        Entry<V> previous = entries.put(keyNormalizer.normalize(query), new Entry<>(value, size));
+        if (previous != null) {
+            bytes -= previous.size;
+        }
+        bytes += size;
+        trimToSize(maxEntries, maxBytes);
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache fits in the given bounds
+     */
+    public synchronized void trimToSize(int maxEntries, long maxBytes) {
+        Iterator<Map.Entry<String, Entry<V>>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Evicts the least recently used half of the cache
+     */
+    public synchronized void trimToHalf() {
+        trimToSize(entries.size() / 2, bytes / 2);
+    }
+
+    public synchronized void evictAll() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return estimated size of the cached values, in bytes
+     */
+    public synchronized long sizeInBytes() {
+        return bytes;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long size;
+
+        Entry(V value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
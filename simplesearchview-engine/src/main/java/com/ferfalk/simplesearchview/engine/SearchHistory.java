@@ -0,0 +1,478 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Recent and frequent search queries, persisted in an append-only log file.
+ * <p>
+ * The log is read once, through a memory mapped buffer, on a background thread. Afterwards every
+ * query is answered from memory. Changes are applied in memory right away and appended to the log
+ * in batches by the same background thread. When the log grows to about twice the records needed
+ * to describe the history, that thread rewrites it compacted and swaps it in atomically.
+ * <p>
+ * Log layout: a header (magic, version) followed by records of
+ * {@code type:byte, count:int, time:long, length:short, query:utf8[length]}.
+ * A truncated last record, left by a crash during a write, is ignored and overwritten.
+ * <p>
+ * Instances are thread safe.
+ */
+public final class SearchHistory implements Closeable {
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private static final Logger LOGGER = Logger.getLogger(SearchHistory.class.getName());
+    // StandardCharsets needs API 19
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x53534831;
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_HEADER_SIZE = 15;
+    private static final int MAX_QUERY_BYTES = Short.MAX_VALUE;
+
+    private static final byte RECORD_ADD = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_CLEAR = 3;
+
+    private static final long FLUSH_DELAY_MS = 1000;
+    private static final int FLUSH_BATCH_RECORDS = 32;
+    static final int COMPACT_MIN_RECORDS = 1024;
+
+    private final File file;
+    private final int maxEntries;
+    private final ScheduledExecutorService executor;
+
+    // Guarded by this
+    private final HashMap<String, Entry> entries = new HashMap<>();
+    private Entry oldest;
+    private Entry newest;
+    private boolean loaded = false;
+    private final List<Operation> operationsBeforeLoad = new ArrayList<>();
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOutput = new DataOutputStream(pending);
+    private int pendingRecords = 0;
+    private ScheduledFuture<?> scheduledFlush;
+    private int logRecords = 0;
+
+    // Only touched by the executor thread
+    private long validLength = 0;
+    private boolean closed = false;
+
+    SearchHistory(File file, int maxEntries) {
+        this.file = file;
+        this.maxEntries = maxEntries;
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SearchHistory");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens the history stored in the file, creating it if needed.
+     * The file is read in the background, until then the history only contains the queries added since.
+     *
+     * @param file log file, used by a single SearchHistory at a time
+     */
+    public static SearchHistory open(File file) {
+        return open(file, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param file       log file, used by a single SearchHistory at a time
+     * @param maxEntries maximum number of queries kept, the least recent ones are dropped
+     */
+    public static SearchHistory open(File file, int maxEntries) {
+        SearchHistory history = new SearchHistory(file, maxEntries);
+        history.startLoading();
+        return history;
+    }
+
+    /**
+     * Reads the file in the background, separate from the constructor so tests can make changes before
+     */
+    void startLoading() {
+        executor.execute(this::load);
+    }
+
+    /**
+     * @return true once the file has been read
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Records a search of the query, empty queries are ignored
+     */
+    public void add(String query) {
+        add(query, System.currentTimeMillis());
+    }
+
+    public synchronized void add(String query, long timeMillis) {
+        if (query.trim().isEmpty()) {
+            return;
+        }
+        record(RECORD_ADD, query, 1, timeMillis);
+    }
+
+    public synchronized void remove(String query) {
+        record(RECORD_REMOVE, query, 0, 0);
+    }
+
+    public synchronized void clear() {
+        record(RECORD_CLEAR, "", 0, 0);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the most recently searched queries, newest first
+     */
+    public synchronized List<String> getRecent(int limit) {
+        List<String> recent = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Entry entry = newest; entry != null && recent.size() < limit; entry = entry.older) {
+            recent.add(entry.query);
+        }
+        return recent;
+    }
+
+    /**
+     * @return the most frequently searched queries, most frequent first, ties go to the most recent
+     */
+    public synchronized List<String> getFrequent(int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Entry> top = new PriorityQueue<>(limit, SearchHistory::compareFrequency);
+        for (Entry entry = newest; entry != null; entry = entry.older) {
+            if (top.size() < limit) {
+                top.add(entry);
+            } else if (compareFrequency(entry, top.peek()) > 0) {
+                top.poll();
+                top.add(entry);
+            }
+        }
+        String[] frequent = new String[top.size()];
+        for (int i = frequent.length - 1; i >= 0; i--) {
+            frequent[i] = top.poll().query;
+        }
+        List<String> result = new ArrayList<>(frequent.length);
+        Collections.addAll(result, frequent);
+        return result;
+    }
+
+    /**
+     * Writes the pending changes and waits for it, changes are held back until the file is read
+     */
+    public void flush() throws IOException {
+        try {
+            executor.submit(() -> {
+                writePending();
+                return null;
+            }).get();
+        } catch (Exception e) {
+            throw new IOException("Could not flush the search history", e);
+        }
+    }
+
+    /**
+     * Writes the pending changes and stops the background thread, the history must not be used afterwards
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        executor.execute(() -> closed = true);
+        executor.shutdown();
+    }
+
+    private void record(byte type, String query, int count, long timeMillis) {
+        byte[] bytes = query.getBytes(UTF_8);
+        if (bytes.length > MAX_QUERY_BYTES) {
+            return;
+        }
+
+        apply(type, query, count, timeMillis);
+        if (!loaded) {
+            operationsBeforeLoad.add(new Operation(type, query, count, timeMillis));
+        }
+
+        try {
+            writeRecord(pendingOutput, type, count, timeMillis, bytes);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        pendingRecords++;
+        logRecords++;
+
+        if (pendingRecords >= FLUSH_BATCH_RECORDS) {
+            scheduleFlush(0);
+        } else if (scheduledFlush == null) {
+            scheduleFlush(FLUSH_DELAY_MS);
+        }
+    }
+
+    private void scheduleFlush(long delayMillis) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = executor.schedule(this::writePendingQuietly, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void apply(byte type, String query, int count, long timeMillis) {
+        switch (type) {
+            case RECORD_ADD:
+                Entry entry = entries.get(query);
+                if (entry == null) {
+                    entry = new Entry(query);
+                    entries.put(query, entry);
+                } else {
+                    unlink(entry);
+                }
+                entry.count += count;
+                entry.timeMillis = Math.max(entry.timeMillis, timeMillis);
+                linkNewest(entry);
+                if (entries.size() > maxEntries) {
+                    entries.remove(oldest.query);
+                    unlink(oldest);
+                }
+                break;
+            case RECORD_REMOVE:
+                Entry removed = entries.remove(query);
+                if (removed != null) {
+                    unlink(removed);
+                }
+                break;
+            case RECORD_CLEAR:
+                entries.clear();
+                oldest = null;
+                newest = null;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void linkNewest(Entry entry) {
+        entry.older = newest;
+        entry.newer = null;
+        if (newest != null) {
+            newest.newer = entry;
+        } else {
+            oldest = entry;
+        }
+        newest = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.older != null) {
+            entry.older.newer = entry.newer;
+        } else {
+            oldest = entry.newer;
+        }
+        if (entry.newer != null) {
+            entry.newer.older = entry.older;
+        } else {
+            newest = entry.older;
+        }
+        entry.older = null;
+        entry.newer = null;
+    }
+
+    // Executor thread
+
+    private void load() {
+        int records = 0;
+        List<Operation> operations = new ArrayList<>();
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() >= HEADER_SIZE && buffer.getInt() == MAGIC && buffer.getInt() == VERSION) {
+                validLength = HEADER_SIZE;
+                byte[] scratch = new byte[256];
+                while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                    byte type = buffer.get();
+                    int count = buffer.getInt();
+                    long timeMillis = buffer.getLong();
+                    int length = buffer.getShort() & 0xFFFF;
+                    if (length > MAX_QUERY_BYTES || buffer.remaining() < length) {
+                        break;
+                    }
+                    if (scratch.length < length) {
+                        scratch = new byte[Math.max(length, scratch.length * 2)];
+                    }
+                    buffer.get(scratch, 0, length);
+                    operations.add(new Operation(type, new String(scratch, 0, length, UTF_8), count, timeMillis));
+                    validLength = buffer.position();
+                    records++;
+                }
+            }
+        } catch (IOException e) {
+            // Missing or unreadable, starts empty
+            validLength = 0;
+        }
+
+        synchronized (this) {
+            // Replays the file under the changes made while it was read
+            List<Operation> recent = new ArrayList<>(operationsBeforeLoad);
+            operationsBeforeLoad.clear();
+            entries.clear();
+            oldest = null;
+            newest = null;
+            for (Operation operation : operations) {
+                apply(operation.type, operation.query, operation.count, operation.timeMillis);
+            }
+            for (Operation operation : recent) {
+                apply(operation.type, operation.query, operation.count, operation.timeMillis);
+            }
+            logRecords += records;
+            loaded = true;
+        }
+        // Changes held back while the file was read
+        writePendingQuietly();
+    }
+
+    private void writePendingQuietly() {
+        try {
+            writePending();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write the search history", e);
+        }
+    }
+
+    private void writePending() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        byte[] bytes;
+        boolean compact;
+        synchronized (this) {
+            scheduledFlush = null;
+            if (!loaded) {
+                // Until the file is read its valid length is unknown, appending could truncate it
+                return;
+            }
+            compact = logRecords > Math.max(COMPACT_MIN_RECORDS, 2 * entries.size());
+            if (compact) {
+                // The snapshot already contains the pending changes
+                bytes = snapshot();
+                logRecords = entries.size();
+            } else {
+                bytes = pending.toByteArray();
+            }
+            pending.reset();
+            pendingRecords = 0;
+        }
+
+        if (compact) {
+            writeCompacted(bytes);
+        } else if (bytes.length > 0) {
+            append(bytes);
+        }
+    }
+
+    private byte[] snapshot() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(HEADER_SIZE + entries.size() * (RECORD_HEADER_SIZE + 16));
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        for (Entry entry = oldest; entry != null; entry = entry.newer) {
+            writeRecord(data, RECORD_ADD, entry.count, entry.timeMillis, entry.query.getBytes(UTF_8));
+        }
+        return output.toByteArray();
+    }
+
+    private void append(byte[] records) throws IOException {
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = output.getChannel();
+            if (validLength < HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+                validLength = HEADER_SIZE;
+            }
+            // Drops a truncated record left by an interrupted write
+            channel.truncate(validLength);
+            channel.write(ByteBuffer.wrap(records), validLength);
+            validLength += records.length;
+        }
+    }
+
+    private void writeCompacted(byte[] log) throws IOException {
+        File compacted = new File(file.getPath() + ".compact");
+        try (RandomAccessFile output = new RandomAccessFile(compacted, "rw")) {
+            output.setLength(0);
+            output.write(log);
+            output.getFD().sync();
+        }
+        if (!compacted.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        validLength = log.length;
+    }
+
+    private static void writeRecord(DataOutputStream output, byte type, int count, long timeMillis, byte[] query) throws IOException {
+        output.writeByte(type);
+        output.writeInt(count);
+        output.writeLong(timeMillis);
+        output.writeShort(query.length);
+        output.write(query);
+    }
+
+    private static int compareFrequency(Entry a, Entry b) {
+        if (a.count != b.count) {
+            return Integer.compare(a.count, b.count);
+        }
+        return Long.compare(a.timeMillis, b.timeMillis);
+    }
+
+    private static final class Entry {
+        final String query;
+        int count;
+        long timeMillis;
+        Entry older;
+        Entry newer;
+
+        Entry(String query) {
+            this.query = query;
+        }
+    }
+
+    private static final class Operation {
+        final byte type;
+        final String query;
+        final int count;
+        final long timeMillis;
+
+        Operation(byte type, String query, int count, long timeMillis) {
+            this.type = type;
+            this.query = query;
+            this.count = count;
+            this.timeMillis = timeMillis;
+        }
+    }
+}
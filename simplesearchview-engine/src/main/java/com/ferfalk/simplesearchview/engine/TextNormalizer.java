@@ -0,0 +1,193 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Folds text into the form terms and queries are matched in: lower case, without diacritics, and tokenized into
+ * words of letters and digits separated by single spaces. "  S&atilde;o-Paulo!" and "sao paulo" both become "sao paulo".
+ * <p>
+ * Case follows the locale where it differs from the default mapping, the Turkish and Azerbaijani dotted and dotless
+ * i. Diacritics are stripped with a table computed once from the canonical decompositions, plus a few letters that
+ * don't decompose: &szlig;, &aelig;, &oelig;, &oslash;, &thorn;, and d, h and l with
+ * stroke. Nothing is allocated when normalizing into a reused StringBuilder.
+ * <p>
+ * An index and its queries must use the same normalizer, see {@link PrefixIndex.Builder#Builder(TextNormalizer)}.
+ * Instances are immutable and thread safe.
+ */
+public final class TextNormalizer {
+    // Latin, Greek, Cyrillic and the Latin extended additional block, the other chars are only lower cased
+    private static final int TABLE_SIZE = 0x2000;
+    private static final char SEPARATOR = '\u0000';
+    private static final char DROP = '\uFFFF';
+    private static final char EXPAND = '\uFFFE';
+    private static final char[] FOLD = buildFoldTable();
+
+    private final Locale locale;
+    private final boolean turkic;
+
+    /**
+     * @param locale locale of the text, its case rules are followed
+     */
+    public TextNormalizer(Locale locale) {
+        this.locale = locale;
+        String language = locale.getLanguage();
+        turkic = "tr".equals(language) || "az".equals(language);
+    }
+
+    /**
+     * @return a normalizer for the default locale
+     */
+    public static TextNormalizer forDefaultLocale() {
+        return new TextNormalizer(Locale.getDefault());
+    }
+
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * @return the normalized text
+     */
+    public String normalize(CharSequence text) {
+        StringBuilder out = new StringBuilder(text.length());
+        normalize(text, out);
+        return out.toString();
+    }
+
+    /**
+     * Replaces the content of out with the normalized text, out only grows when it is too small
+     */
+    public void normalize(CharSequence text, StringBuilder out) {
+        out.setLength(0);
+        boolean pendingSeparator = false;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            char folded = fold(c);
+            if (folded == DROP) {
+                continue;
+            }
+            if (folded == SEPARATOR) {
+                pendingSeparator = out.length() > 0;
+                continue;
+            }
+            if (pendingSeparator) {
+                out.append(' ');
+                pendingSeparator = false;
+            }
+            if (folded == EXPAND) {
+                appendExpansion(c, out);
+            } else {
+                out.append(folded);
+            }
+        }
+    }
+
+    /**
+     * @return the folded char, SEPARATOR, DROP or EXPAND
+     */
+    private char fold(char c) {
+        if (turkic) {
+            if (c == 'I') {
+                // Dotless i
+                return '\u0131';
+            }
+            if (c == '\u0130') {
+                // Dotted capital I
+                return 'i';
+            }
+        }
+        if (c < TABLE_SIZE) {
+            return FOLD[c];
+        }
+        if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+            // Kept as is, supplementary letters and emoji
+            return c;
+        }
+        if (Character.getType(c) == Character.NON_SPACING_MARK) {
+            return DROP;
+        }
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : SEPARATOR;
+    }
+
+    private static void appendExpansion(char c, StringBuilder out) {
+        switch (c) {
+            case '\u00DF': // sharp s
+            case '\u1E9E': // capital sharp s
+                out.append('s').append('s');
+                break;
+            case '\u00C6': // ae
+            case '\u00E6': // ae
+                out.append('a').append('e');
+                break;
+            case '\u0152': // oe
+            case '\u0153': // oe
+                out.append('o').append('e');
+                break;
+            case '\u00DE': // thorn
+            case '\u00FE': // thorn
+                out.append('t').append('h');
+                break;
+            default:
+                out.append(c);
+                break;
+        }
+    }
+
+    private static char[] buildFoldTable() {
+        char[] table = new char[TABLE_SIZE];
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            table[c] = foldSlowly((char) c);
+        }
+        return table;
+    }
+
+    private static char foldSlowly(char c) {
+        switch (c) {
+            case '\u00DF': // sharp s
+            case '\u1E9E': // capital sharp s
+            case '\u00C6': // ae
+            case '\u00E6': // ae
+            case '\u0152': // oe
+            case '\u0153': // oe
+            case '\u00DE': // thorn
+            case '\u00FE': // thorn
+                return EXPAND;
+            case '\u00D8': // o with stroke
+            case '\u00F8': // o with stroke
+                return 'o';
+            case '\u0110': // d with stroke
+            case '\u0111': // d with stroke
+                return 'd';
+            case '\u0141': // l with stroke
+            case '\u0142': // l with stroke
+                return 'l';
+            case '\u0126': // h with stroke
+            case '\u0127': // h with stroke
+                return 'h';
+            case '\u03C2': // final sigma
+                return '\u03C3';
+            default:
+                break;
+        }
+        if (Character.getType(c) == Character.NON_SPACING_MARK) {
+            return DROP;
+        }
+        if (!Character.isLetterOrDigit(c)) {
+            return SEPARATOR;
+        }
+
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        char base = decomposed.charAt(0);
+        for (int i = 1; i < decomposed.length(); i++) {
+            if (Character.getType(decomposed.charAt(i)) != Character.NON_SPACING_MARK) {
+                // Not a letter with diacritics, kept whole
+                base = c;
+                break;
+            }
+        }
+        char folded = Character.toLowerCase(base);
+        return folded == SEPARATOR || folded == DROP || folded == EXPAND ? c : folded;
+    }
+}
@@ -0,0 +1,158 @@
+package com.ferfalk.simplesearchview.engine;
+
+/**
+ * Keeps the K best scored candidates of a stream, in a bounded binary min-heap of primitive scores.
+ * <p>
+ * Offering n candidates costs O(n log K) instead of collecting and sorting them all, and allocates nothing.
+ * Once K candidates are held, the K-th best score is a threshold: when candidates come in decreasing order of an
+ * upper bound of their score, the stream can stop at the first one whose bound doesn't beat it, see {@link #canAccept(float)}.
+ * <p>
+ * Equal scores keep the candidate offered first. Reusable after {@link #drain}, not thread safe.
+ */
+public final class TopKRanker {
+    private final int capacity;
+    // Min-heap, the worst kept candidate is at 0
+    private final float[] scores;
+    private final int[] ids;
+    private final int[] sequences;
+    private int size;
+    private int sequence;
+
+    /**
+     * @param k maximum number of candidates kept
+     */
+    public TopKRanker(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+        capacity = k;
+        scores = new float[k];
+        ids = new int[k];
+        sequences = new int[k];
+    }
+
+    public int getK() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * @return the score a candidate must beat to be kept, negative infinity until K candidates are held
+     */
+    public float getThreshold() {
+        return isFull() ? scores[0] : Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @param scoreBound highest score the next candidates can have
+     * @return false if none of them can be kept, the stream can stop
+     */
+    public boolean canAccept(float scoreBound) {
+        return !isFull() || scoreBound > scores[0];
+    }
+
+    /**
+     * @param id    candidate id, returned by {@link #drain}
+     * @param score candidate score, higher is better, NaN is ignored
+     * @return true if the candidate is kept, for now
+     */
+    public boolean offer(int id, float score) {
+        if (score != score) {
+            return false;
+        }
+        int seq = sequence++;
+        if (size < capacity) {
+            siftUp(size++, score, id, seq);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        siftDown(0, score, id, seq);
+        return true;
+    }
+
+    /**
+     * Writes the kept candidates, best first, and empties the ranker
+     *
+     * @param resultIds    receives the ids, must hold {@link #size()} of them
+     * @param resultScores receives the scores, may be null
+     * @return number of candidates written
+     */
+    public int drain(int[] resultIds, float[] resultScores) {
+        int count = size;
+        for (int i = count - 1; i >= 0; i--) {
+            resultIds[i] = ids[0];
+            if (resultScores != null) {
+                resultScores[i] = scores[0];
+            }
+            removeWorst();
+        }
+        sequence = 0;
+        return count;
+    }
+
+    /**
+     * Drops the kept candidates
+     */
+    public void reset() {
+        size = 0;
+        sequence = 0;
+    }
+
+    private void removeWorst() {
+        int last = --size;
+        if (last > 0) {
+            siftDown(0, scores[last], ids[last], sequences[last]);
+        }
+    }
+
+    /**
+     * @return true if candidate a is worse than candidate b
+     */
+    private static boolean worse(float scoreA, int seqA, float scoreB, int seqB) {
+        return scoreA < scoreB || (scoreA == scoreB && seqA > seqB);
+    }
+
+    private void siftUp(int i, float score, int id, int seq) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(score, seq, scores[parent], sequences[parent])) {
+                break;
+            }
+            set(i, scores[parent], ids[parent], sequences[parent]);
+            i = parent;
+        }
+        set(i, score, id, seq);
+    }
+
+    private void siftDown(int i, float score, int id, int seq) {
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && worse(scores[right], sequences[right], scores[child], sequences[child])) {
+                child = right;
+            }
+            if (!worse(scores[child], sequences[child], score, seq)) {
+                break;
+            }
+            set(i, scores[child], ids[child], sequences[child]);
+            i = child;
+        }
+        set(i, score, id, seq);
+    }
+
+    private void set(int i, float score, int id, int seq) {
+        scores[i] = score;
+        ids[i] = id;
+        sequences[i] = seq;
+    }
+}
@@ -0,0 +1,301 @@
+package com.ferfalk.simplesearchview.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable trigram index over weighted entries, answers top-K entries containing the query anywhere,
+ * "phone" matches "Smartphone case".
+ * <p>
+ * Entries are normalized by a {@link TextNormalizer} and every run of 3 chars of the result, a trigram, has a
+ * sorted posting list of the entries containing it. An entry containing the query contains all its trigrams, so
+ * the candidates are the intersection of their posting lists, shortest first, by galloping. The candidates are then
+ * verified with a {@link HorspoolMatcher} over the normalized text, unless the query is a single trigram.
+ * When most entries are candidates, they are verified in decreasing weight order until enough match.
+ * <p>
+ * Queries shorter than a trigram scan the normalized texts in decreasing weight order, common ones stop early.
+ * Instances are thread safe.
+ */
+public final class TrigramIndex {
+    static final int GRAM_LENGTH = 3;
+    // Above 1 candidate in 8 entries, verifying by weight finds the best ones sooner than verifying all
+    private static final int SCAN_RATIO = 8;
+
+    private final TextNormalizer normalizer;
+
+    // Entry i is textChars[textOffsets[i] until textOffsets[i + 1]], normalized in keyChars the same way
+    private final char[] textChars;
+    private final int[] textOffsets;
+    private final char[] keyChars;
+    private final int[] keyOffsets;
+    private final int[] weights;
+    // Entry ids by decreasing weight
+    private final int[] byWeight;
+
+    // Trigrams, sorted, the entries of trigram t are postings[postingOffsets[t] until postingOffsets[t + 1]]
+    private final long[] grams;
+    private final int[] postingOffsets;
+    private final int[] postings;
+
+    TrigramIndex(TextNormalizer normalizer, char[] textChars, int[] textOffsets, char[] keyChars, int[] keyOffsets,
+                 int[] weights, int[] byWeight, long[] grams, int[] postingOffsets, int[] postings) {
+        this.normalizer = normalizer;
+        this.textChars = textChars;
+        this.textOffsets = textOffsets;
+        this.keyChars = keyChars;
+        this.keyOffsets = keyOffsets;
+        this.weights = weights;
+        this.byWeight = byWeight;
+        this.grams = grams;
+        this.postingOffsets = postingOffsets;
+        this.postings = postings;
+    }
+
+    /**
+     * @return number of entries in the index
+     */
+    public int size() {
+        return weights.length;
+    }
+
+    /**
+     * @return number of distinct trigrams in the entries
+     */
+    public int getTrigramCount() {
+        return grams.length;
+    }
+
+    /**
+     * @param id entry id, from 0 to size() - 1, in the order the entries were added
+     * @return the entry as it was added
+     */
+    public String getText(int id) {
+        return new String(textChars, textOffsets[id], textOffsets[id + 1] - textOffsets[id]);
+    }
+
+    public int getWeight(int id) {
+        return weights[id];
+    }
+
+    public TextNormalizer getNormalizer() {
+        return normalizer;
+    }
+
+    /**
+     * Finds the entries containing the query that have the highest weights.
+     * Entries with the same weight are returned in the order they were added.
+     *
+     * @param query   text to find, normalized like the entries
+     * @param results receives the entry ids, best first, its length is the maximum number of results
+     * @return number of ids written to results
+     */
+    public int search(CharSequence query, int[] results) {
+        String normalized = normalizer.normalize(query);
+        if (normalized.isEmpty() || results.length == 0) {
+            return 0;
+        }
+        HorspoolMatcher matcher = new HorspoolMatcher(normalized);
+        if (normalized.length() < GRAM_LENGTH) {
+            return scan(matcher, null, results);
+        }
+
+        int[] candidates = findCandidates(normalized);
+        int count = candidates.length;
+        if (count > size() / SCAN_RATIO) {
+            long[] isCandidate = new long[(size() + 63) >>> 6];
+            for (int i = 0; i < count; i++) {
+                isCandidate[candidates[i] >>> 6] |= 1L << candidates[i];
+            }
+            return scan(normalized.length() == GRAM_LENGTH ? null : matcher, isCandidate, results);
+        }
+
+        TopKRanker ranker = new TopKRanker(results.length);
+        for (int i = 0; i < count; i++) {
+            int entry = candidates[i];
+            if (normalized.length() == GRAM_LENGTH || contains(matcher, entry)) {
+                ranker.offer(entry, weights[entry]);
+            }
+        }
+        return ranker.drain(results, null);
+    }
+
+    /**
+     * @return the entries containing every trigram of the query, sorted
+     */
+    private int[] findCandidates(String query) {
+        int gramCount = query.length() - GRAM_LENGTH + 1;
+        // Shortest posting lists first, the candidates only shrink
+        long[] bySize = new long[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            int gram = Arrays.binarySearch(grams, gram(query.charAt(i), query.charAt(i + 1), query.charAt(i + 2)));
+            if (gram < 0) {
+                return new int[0];
+            }
+            bySize[i] = ((long) (postingOffsets[gram + 1] - postingOffsets[gram]) << 32) | gram;
+        }
+        Arrays.sort(bySize);
+
+        int first = (int) bySize[0];
+        int[] candidates = Arrays.copyOfRange(postings, postingOffsets[first], postingOffsets[first + 1]);
+        int count = candidates.length;
+        for (int i = 1; i < gramCount && count > 0; i++) {
+            if (bySize[i] == bySize[i - 1]) {
+                // Same trigram twice in the query
+                continue;
+            }
+            int gram = (int) bySize[i];
+            count = intersect(candidates, count, postingOffsets[gram], postingOffsets[gram + 1]);
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Keeps the candidates found in postings[from until to], in place
+     *
+     * @return number of candidates kept
+     */
+    private int intersect(int[] candidates, int count, int from, int to) {
+        int kept = 0;
+        int i = 0;
+        int position = from;
+        while (i < count) {
+            position = InvertedIndex.gallop(postings, position, to, candidates[i]);
+            if (position == to) {
+                break;
+            }
+            int entry = postings[position];
+            if (entry == candidates[i]) {
+                candidates[kept++] = entry;
+                i++;
+            } else {
+                i = InvertedIndex.gallop(candidates, i + 1, count, entry);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Writes the best entries that are candidates, all entries if null, and contain the pattern,
+     * every candidate if matcher is null
+     *
+     * @return number of ids written to results
+     */
+    private int scan(HorspoolMatcher matcher, long[] isCandidate, int[] results) {
+        int count = 0;
+        for (int i = 0; i < byWeight.length && count < results.length; i++) {
+            int entry = byWeight[i];
+            if (isCandidate != null && (isCandidate[entry >>> 6] & (1L << entry)) == 0) {
+                continue;
+            }
+            if (matcher == null || contains(matcher, entry)) {
+                results[count++] = entry;
+            }
+        }
+        return count;
+    }
+
+    private boolean contains(HorspoolMatcher matcher, int entry) {
+        return matcher.indexOf(keyChars, keyOffsets[entry], keyOffsets[entry + 1]) >= 0;
+    }
+
+    static long gram(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+
+    public static final class Builder {
+        private final TextNormalizer normalizer;
+        private final StringBuilder keyBuffer = new StringBuilder();
+        private final List<String> texts = new ArrayList<>();
+        private final List<String> keys = new ArrayList<>();
+        private final Map<Long, PostingList> postingLists = new HashMap<>();
+        private int[] weights = new int[16];
+
+        /**
+         * @param normalizer normalizes the entries and the queries
+         */
+        public Builder(TextNormalizer normalizer) {
+            this.normalizer = normalizer;
+        }
+
+        /**
+         * Adds an entry with weight 0
+         */
+        public Builder add(String text) {
+            return add(text, 0);
+        }
+
+        /**
+         * Adds an entry, its id is the number of entries added before it
+         *
+         * @param weight ranking weight, higher first, must not be negative
+         */
+        public Builder add(String text, int weight) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight must not be negative: " + weight);
+            }
+            int id = texts.size();
+            if (id == weights.length) {
+                weights = Arrays.copyOf(weights, id * 2);
+            }
+            weights[id] = weight;
+            texts.add(text);
+
+            normalizer.normalize(text, keyBuffer);
+            keys.add(keyBuffer.toString());
+            for (int i = 0; i + GRAM_LENGTH <= keyBuffer.length(); i++) {
+                Long gram = gram(keyBuffer.charAt(i), keyBuffer.charAt(i + 1), keyBuffer.charAt(i + 2));
+                PostingList list = postingLists.get(gram);
+                if (list == null) {
+                    list = new PostingList();
+                    postingLists.put(gram, list);
+                }
+                list.add(id);
+            }
+            return this;
+        }
+
+        public TrigramIndex build() {
+            int size = texts.size();
+            char[] textChars = new char[totalLength(texts)];
+            int[] textOffsets = InvertedIndex.Builder.pack(texts.toArray(new String[size]), textChars);
+            char[] keyChars = new char[totalLength(keys)];
+            int[] keyOffsets = InvertedIndex.Builder.pack(keys.toArray(new String[size]), keyChars);
+
+            long[] grams = new long[postingLists.size()];
+            int gramCount = 0;
+            int postingCount = 0;
+            for (Map.Entry<Long, PostingList> entry : postingLists.entrySet()) {
+                grams[gramCount++] = entry.getKey();
+                postingCount += entry.getValue().size;
+            }
+            Arrays.sort(grams);
+
+            int[] postingOffsets = new int[gramCount + 1];
+            int[] postings = new int[postingCount];
+            int offset = 0;
+            for (int i = 0; i < gramCount; i++) {
+                PostingList list = postingLists.get(grams[i]);
+                postingOffsets[i] = offset;
+                System.arraycopy(list.entries, 0, postings, offset, list.size);
+                offset += list.size;
+            }
+            postingOffsets[gramCount] = offset;
+
+            int[] entryWeights = Arrays.copyOf(weights, size);
+            return new TrigramIndex(normalizer, textChars, textOffsets, keyChars, keyOffsets,
+                    entryWeights, InvertedIndex.Builder.sortByWeight(entryWeights), grams, postingOffsets, postings);
+        }
+
+        private static int totalLength(List<String> strings) {
+            int length = 0;
+            for (int i = 0; i < strings.size(); i++) {
+                length += strings.get(i).length();
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FuzzyMatcherTest {
+    @Test
+    public void distanceLimit_growsWithTheQuery() {
+        FuzzyMatcher matcher = new FuzzyMatcher(new PrefixIndex.Builder().add("apple").build());
+        assertEquals(0, matcher.getDistanceLimit(2));
+        assertEquals(1, matcher.getDistanceLimit(3));
+        assertEquals(1, matcher.getDistanceLimit(5));
+        assertEquals(2, matcher.getDistanceLimit(6));
+        FuzzyMatcher strict = new FuzzyMatcher(new PrefixIndex.Builder().add("apple").build(), 1);
+        assertEquals(1, strict.getDistanceLimit(10));
+    }
+
+    @Test
+    public void closestFirst_thenHeaviest() {
+        PrefixIndex index = new PrefixIndex.Builder(new TextNormalizer(Locale.ENGLISH))
+                .add("Bánana", 1)
+                .add("bandana", 9)
+                .add("cabana", 5)
+                .add("banner", 3)
+                .build();
+        FuzzyMatcher matcher = new FuzzyMatcher(index);
+
+        int[] results = new int[8];
+        int[] distances = new int[8];
+        int count = matcher.complete("BANANA", results, distances);
+        // Accents and case are not edits
+        assertEquals("Bánana", index.getTerm(results[0]));
+        assertEquals(0, distances[0]);
+        assertEquals("bandana", index.getTerm(results[1]));
+        assertEquals(1, distances[1]);
+        assertEquals(4, count);
+        assertEquals("cabana", index.getTerm(results[2]));
+        assertEquals("banner", index.getTerm(results[3]));
+        assertArrayEquals(new int[]{0, 1, 2, 2}, Arrays.copyOf(distances, count));
+
+        // Too short for any edit
+        assertEquals(0, matcher.complete("bx", results));
+        // One edit at most up to 5 chars, "ban" with an inserted n
+        assertEquals(3, matcher.complete("bnan", results, distances));
+        assertEquals("bandana", index.getTerm(results[0]));
+        assertEquals("banner", index.getTerm(results[1]));
+        assertEquals("Bánana", index.getTerm(results[2]));
+        assertArrayEquals(new int[]{1, 1, 1}, Arrays.copyOf(distances, 3));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(7);
+        TreeMap<String, Integer> terms = new TreeMap<>();
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for (int i = 0; i < 2_000; i++) {
+            String term = PrefixIndexTest.randomText(random, 1 + random.nextInt(9));
+            int weight = random.nextInt(50);
+            builder.add(term, weight);
+            terms.merge(term, weight, Math::max);
+        }
+        PrefixIndex index = builder.build();
+        List<String> sorted = new ArrayList<>(terms.keySet());
+        FuzzyMatcher matcher = new FuzzyMatcher(index);
+
+        int[] results = new int[16];
+        int[] distances = new int[16];
+        for (int i = 0; i < 300; i++) {
+            String query = PrefixIndexTest.randomText(random, 1 + random.nextInt(8));
+            int limit = matcher.getDistanceLimit(query.length());
+            List<List<Integer>> tiers = new ArrayList<>();
+            for (int distance = 0; distance <= limit; distance++) {
+                tiers.add(new ArrayList<>());
+            }
+            for (int id = 0; id < sorted.size(); id++) {
+                int distance = prefixDistance(query, sorted.get(id));
+                if (distance <= limit) {
+                    tiers.get(distance).add(id);
+                }
+            }
+            List<Integer> expected = new ArrayList<>();
+            List<Integer> expectedDistances = new ArrayList<>();
+            for (int distance = 0; distance <= limit; distance++) {
+                for (int id : PrefixIndexTest.top(tiers.get(distance), terms, sorted, results.length - expected.size())) {
+                    expected.add(id);
+                    expectedDistances.add(distance);
+                }
+            }
+
+            int count = matcher.complete(query, results, distances);
+            assertEquals(query, expected.size(), count);
+            for (int j = 0; j < count; j++) {
+                assertEquals(query, (int) expected.get(j), results[j]);
+                assertEquals(query, (int) expectedDistances.get(j), distances[j]);
+            }
+        }
+    }
+
+    /**
+     * Lowest Levenshtein distance between the query and a prefix of the term
+     */
+    private static int prefixDistance(String query, String term) {
+        int[] previous = new int[query.length() + 1];
+        int[] row = new int[query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) {
+            previous[j] = j;
+        }
+        int best = query.length();
+        for (int i = 1; i <= term.length(); i++) {
+            row[0] = i;
+            for (int j = 1; j <= query.length(); j++) {
+                int substitution = previous[j - 1] + (query.charAt(j - 1) == term.charAt(i - 1) ? 0 : 1);
+                row[j] = Math.min(Math.min(previous[j], row[j - 1]) + 1, substitution);
+            }
+            best = Math.min(best, row[query.length()]);
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,105 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Locale;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class IndexSnapshotTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void loadedIndex_answersLikeTheBuiltOne() throws IOException {
+        PrefixIndex built = new PrefixIndex.Builder(new TextNormalizer(new Locale("tr", "TR")))
+                .add("İstanbul", 9)
+                .add("Izmir", 4)
+                .add("Ankara", 7)
+                .add("Antalya", 5)
+                .build();
+        File file = folder.newFile("index.bin");
+        IndexSnapshot.write(built, file);
+
+        PrefixIndex loaded = IndexSnapshot.readPrefixIndex(file);
+        assertEquals(built.size(), loaded.size());
+        assertEquals(new Locale("tr", "TR"), loaded.getNormalizer().getLocale());
+        for (String query : new String[]{"an", "i", "ı", "ISTANBUL", "x"}) {
+            assertArrayEquals(query, complete(built, query), complete(loaded, query));
+        }
+        int[] results = new int[1];
+        loaded.complete("ista", results);
+        assertEquals("İstanbul", loaded.getTerm(results[0]));
+        assertEquals(9, loaded.getWeight(results[0]));
+        assertEquals(1, new FuzzyMatcher(loaded).complete("ankra", results));
+    }
+
+    @Test
+    public void withoutNormalizer() throws IOException {
+        PrefixIndex built = new PrefixIndex.Builder().add("apple", 1).add("apricot", 2).build();
+        File file = folder.newFile("index.bin");
+        IndexSnapshot.write(built, file);
+
+        PrefixIndex loaded = IndexSnapshot.readPrefixIndex(file);
+        assertNull(loaded.getNormalizer());
+        assertArrayEquals(complete(built, "ap"), complete(loaded, "ap"));
+        assertEquals("apricot", loaded.getTerm(1));
+    }
+
+    @Test
+    public void corruptedSnapshot_isRejected() throws IOException {
+        File file = folder.newFile("index.bin");
+        IndexSnapshot.write(new PrefixIndex.Builder().add("apple").add("banana").build(), file);
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(output.length() - 1);
+            int last = output.read();
+            output.seek(output.length() - 1);
+            output.write(last ^ 1);
+        }
+        assertRejected(file);
+    }
+
+    @Test
+    public void otherVersion_isRejected() throws IOException {
+        File file = folder.newFile("index.bin");
+        IndexSnapshot.write(new PrefixIndex.Builder().add("apple").build(), file);
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(4);
+            output.write(IndexSnapshot.VERSION + 1);
+        }
+        assertRejected(file);
+    }
+
+    @Test
+    public void truncatedSnapshot_isRejected() throws IOException {
+        File file = folder.newFile("index.bin");
+        IndexSnapshot.write(new PrefixIndex.Builder().add("apple").build(), file);
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(output.length() - 8);
+        }
+        assertRejected(file);
+    }
+
+    private static int[] complete(PrefixIndex index, String query) {
+        int[] results = new int[8];
+        return Arrays.copyOf(results, index.complete(query, results));
+    }
+
+    private static void assertRejected(File file) {
+        try {
+            IndexSnapshot.readPrefixIndex(file);
+            fail();
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class InvertedIndexTest {
+    private final TextNormalizer normalizer = new TextNormalizer(Locale.ENGLISH);
+
+    @Test
+    public void wordsMatchInAnyOrder_lastOneAsPrefix() {
+        InvertedIndex index = new InvertedIndex.Builder(normalizer)
+                .add("Shoes - Black Leather", 3)
+                .add("Black Shirt", 5)
+                .add("Brown Shoes", 1)
+                .build();
+
+        int[] results = new int[4];
+        assertEquals(1, index.search("black sho", results));
+        assertEquals("Shoes - Black Leather", index.getText(results[0]));
+        assertEquals(2, index.search("BLACK s", results));
+        assertArrayEquals(new int[]{1, 0}, Arrays.copyOf(results, 2));
+        assertEquals(3, index.search("sh", results));
+        assertEquals(0, index.search("blac shoes", results));
+        assertEquals(0, index.search("  ", results));
+    }
+
+    @Test
+    public void equalWeights_keepTheOrderAdded() {
+        InvertedIndex index = new InvertedIndex.Builder(normalizer)
+                .add("red car").add("red bike").add("red bus")
+                .build();
+        int[] results = new int[3];
+        assertEquals(3, index.search("red", results));
+        assertArrayEquals(new int[]{0, 1, 2}, results);
+    }
+
+    @Test
+    public void manyBlocks_matchBruteForce() {
+        String[] vocabulary = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "eta", "theta", "iota", "kappa"};
+        Random random = new Random(7);
+        List<String> entries = new ArrayList<>();
+        InvertedIndex.Builder builder = new InvertedIndex.Builder(normalizer);
+        for (int i = 0; i < 20_000; i++) {
+            // Rare words make long gaps between postings, so whole blocks get skipped
+            String entry = vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + vocabulary[random.nextInt(3)] + " "
+                    + (random.nextInt(50) == 0 ? "rare" : vocabulary[random.nextInt(vocabulary.length)])
+                    + " item" + i;
+            entries.add(entry);
+            builder.add(entry);
+        }
+        InvertedIndex index = builder.build();
+
+        String[] queries = {"rare alpha", "beta gamma e", "alpha rare th", "delta alpha beta", "ra", "e", "rare item1"};
+        int[] results = new int[20_000];
+        for (String query : queries) {
+            int count = index.search(query, results);
+            assertArrayEquals(query, bruteForce(entries, query), Arrays.copyOf(results, count));
+        }
+    }
+
+    @Test
+    public void gallop_findsTheFirstValueAtLeastTarget() {
+        int[] values = {1, 3, 5, 7, 9, 11, 13};
+        assertEquals(0, InvertedIndex.gallop(values, 0, values.length, 0));
+        assertEquals(3, InvertedIndex.gallop(values, 0, values.length, 6));
+        assertEquals(3, InvertedIndex.gallop(values, 2, values.length, 7));
+        assertEquals(7, InvertedIndex.gallop(values, 0, values.length, 14));
+    }
+
+    private int[] bruteForce(List<String> entries, String query) {
+        String[] words = normalizer.normalize(query).split(" ");
+        List<Integer> matches = new ArrayList<>();
+        for (int id = 0; id < entries.size(); id++) {
+            List<String> entryWords = Arrays.asList(normalizer.normalize(entries.get(id)).split(" "));
+            boolean match = true;
+            for (int w = 0; w < words.length && match; w++) {
+                if (w < words.length - 1) {
+                    match = entryWords.contains(words[w]);
+                } else {
+                    match = false;
+                    for (String entryWord : entryWords) {
+                        match |= entryWord.startsWith(words[w]);
+                    }
+                }
+            }
+            if (match) {
+                matches.add(id);
+            }
+        }
+        int[] ids = new int[matches.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = matches.get(i);
+        }
+        return ids;
+    }
+}
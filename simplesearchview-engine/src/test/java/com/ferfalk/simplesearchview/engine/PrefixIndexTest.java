@@ -0,0 +1,122 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PrefixIndexTest {
+    @Test
+    public void completes_bestFirst_tiesInSortedOrder() {
+        PrefixIndex index = new PrefixIndex.Builder()
+                .add("banana", 3)
+                .add("apple", 2)
+                .add("apricot", 5)
+                .add("avocado", 2)
+                .add("apple", 4)
+                .add("", 9)
+                .build();
+
+        assertEquals(4, index.size());
+        assertEquals("apple", index.getTerm(0));
+        assertEquals(4, index.getWeight(0));
+        assertArrayEquals(new int[]{1, 0, 3, 2}, complete(index, "", 8));
+        assertArrayEquals(new int[]{1, 0}, complete(index, "ap", 8));
+        assertArrayEquals(new int[]{1}, complete(index, "a", 1));
+        assertArrayEquals(new int[0], complete(index, "apz", 8));
+        assertArrayEquals(new int[0], complete(index, "apples", 8));
+        assertEquals(3, index.countPrefix("a"));
+        assertEquals(0, index.countPrefix("c"));
+    }
+
+    @Test
+    public void normalizedTerms_keepTheirText() {
+        PrefixIndex index = new PrefixIndex.Builder(new TextNormalizer(Locale.ENGLISH))
+                .add("Café", 1)
+                .add("cafe", 3)
+                .add("Cable", 2)
+                .build();
+
+        assertEquals(2, index.size());
+        int[] results = complete(index, "CAF", 8);
+        assertEquals(1, results.length);
+        assertEquals("cafe", index.getKey(results[0]));
+        // The text of the highest weight duplicate
+        assertEquals("cafe", index.getTerm(results[0]));
+        assertEquals("Cable", index.getTerm(complete(index, "cab", 8)[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeWeight_isRejected() {
+        new PrefixIndex.Builder().add("apple", -1);
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(5);
+        TreeMap<String, Integer> terms = new TreeMap<>();
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for (int i = 0; i < 5_000; i++) {
+            String term = randomText(random, 1 + random.nextInt(8));
+            int weight = random.nextInt(50);
+            builder.add(term, weight);
+            terms.merge(term, weight, Math::max);
+        }
+        PrefixIndex index = builder.build();
+        List<String> sorted = new ArrayList<>(terms.keySet());
+        assertEquals(sorted.size(), index.size());
+        for (int id = 0; id < sorted.size(); id++) {
+            assertEquals(sorted.get(id), index.getTerm(id));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String prefix = randomText(random, random.nextInt(4));
+            int limit = 1 + random.nextInt(20);
+            List<Integer> matches = new ArrayList<>();
+            for (int id = 0; id < sorted.size(); id++) {
+                if (sorted.get(id).startsWith(prefix)) {
+                    matches.add(id);
+                }
+            }
+            assertEquals(prefix, matches.size(), index.countPrefix(prefix));
+            assertArrayEquals(prefix, top(matches, terms, sorted, limit), complete(index, prefix, limit));
+        }
+    }
+
+    /**
+     * Highest weights first, then lowest ids
+     */
+    static int[] top(List<Integer> matches, Map<String, Integer> weights, List<String> sorted, int limit) {
+        List<Integer> ranked = new ArrayList<>(matches);
+        ranked.sort((a, b) -> {
+            int byWeight = Integer.compare(weights.get(sorted.get(b)), weights.get(sorted.get(a)));
+            return byWeight != 0 ? byWeight : Integer.compare(a, b);
+        });
+        int[] top = new int[Math.min(limit, ranked.size())];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = ranked.get(i);
+        }
+        return top;
+    }
+
+    static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(4)));
+        }
+        return text.toString();
+    }
+
+    private static int[] complete(PrefixIndex index, String prefix, int limit) {
+        int[] results = new int[limit];
+        return Arrays.copyOf(results, index.complete(prefix, results));
+    }
+}
@@ -0,0 +1,84 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PrefixSearcherTest {
+    @Test
+    public void narrowsOnExtend_startsOverOnBackspace() {
+        PrefixIndex index = new PrefixIndex.Builder(new TextNormalizer(Locale.ENGLISH))
+                .add("Apple", 2)
+                .add("Apricot", 5)
+                .add("Banana", 3)
+                .build();
+        PrefixSearcher searcher = new PrefixSearcher(index);
+
+        assertArrayEquals(new int[]{1, 0}, complete(searcher, "A"));
+        assertArrayEquals(new int[]{0}, complete(searcher, "app"));
+        assertArrayEquals(new int[0], complete(searcher, "appz"));
+        assertArrayEquals(new int[0], complete(searcher, "appzz"));
+        assertEquals(0, searcher.getMatchCount());
+        assertArrayEquals(new int[]{1, 0}, complete(searcher, "ap"));
+        assertEquals(2, searcher.getMatchCount());
+        assertArrayEquals(new int[]{2}, complete(searcher, "ba"));
+        searcher.reset();
+        assertEquals(0, searcher.getMatchCount());
+        assertArrayEquals(new int[]{1, 2, 0}, complete(searcher, ""));
+    }
+
+    @Test
+    public void sessionsMatchBruteForce() {
+        Random random = new Random(9);
+        TreeMap<String, Integer> terms = new TreeMap<>();
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for (int i = 0; i < 3_000; i++) {
+            String term = PrefixIndexTest.randomText(random, 1 + random.nextInt(8));
+            int weight = random.nextInt(50);
+            builder.add(term, weight);
+            terms.merge(term, weight, Math::max);
+        }
+        PrefixIndex index = builder.build();
+        List<String> sorted = new ArrayList<>(terms.keySet());
+
+        PrefixSearcher searcher = new PrefixSearcher(index);
+        StringBuilder query = new StringBuilder();
+        for (int step = 0; step < 2_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 6 || query.length() == 0) {
+                // Typing, narrows the previous query
+                query.append((char) ('a' + random.nextInt(4)));
+            } else if (action < 9) {
+                query.setLength(query.length() - 1);
+            } else {
+                query.setCharAt(random.nextInt(query.length()), (char) ('a' + random.nextInt(4)));
+            }
+            if (query.length() > 6) {
+                query.setLength(0);
+            }
+
+            String prefix = query.toString();
+            List<Integer> matches = new ArrayList<>();
+            for (int id = 0; id < sorted.size(); id++) {
+                if (sorted.get(id).startsWith(prefix)) {
+                    matches.add(id);
+                }
+            }
+            assertArrayEquals(prefix, PrefixIndexTest.top(matches, terms, sorted, 8), complete(searcher, query));
+            assertEquals(prefix, matches.size(), searcher.getMatchCount());
+        }
+    }
+
+    private static int[] complete(PrefixSearcher searcher, CharSequence query) {
+        int[] results = new int[8];
+        return Arrays.copyOf(results, searcher.complete(query, results));
+    }
+}
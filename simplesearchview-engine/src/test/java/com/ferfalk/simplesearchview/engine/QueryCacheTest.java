@@ -0,0 +1,132 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class QueryCacheTest {
+    private static final QueryCache.Weigher<String> LENGTH = String::length;
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        QueryCache<String> cache = new QueryCache<>(2, 100, LENGTH);
+        cache.put("a", "apple");
+        cache.put("b", "banana");
+        assertEquals("apple", cache.get("a"));
+        cache.put("c", "cherry");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("apple", cache.get("a"));
+        assertEquals("cherry", cache.get("c"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void boundedByBytes() {
+        QueryCache<String> cache = new QueryCache<>(10, 12, LENGTH);
+        cache.put("a", "apple");
+        cache.put("b", "banana");
+        assertEquals(11, cache.sizeInBytes());
+        cache.put("c", "cherry");
+        assertNull(cache.get("a"));
+        assertEquals(12, cache.sizeInBytes());
+
+        // Replacing a value only counts the new one
+        cache.put("b", "blueberry");
+        assertNull(cache.get("c"));
+        assertEquals(9, cache.sizeInBytes());
+
+        // Larger than the whole cache, not cached
+        cache.put("d", "dragon fruits");
+        assertNull(cache.get("d"));
+        assertEquals("blueberry", cache.get("b"));
+    }
+
+    @Test
+    public void trim() {
+        QueryCache<String> cache = new QueryCache<>(10, 100, LENGTH);
+        cache.put("a", "apple");
+        cache.put("b", "banana");
+        cache.put("c", "cherry");
+        cache.put("d", "date");
+        cache.get("a");
+
+        cache.trimToHalf();
+        assertEquals(2, cache.size());
+        assertEquals("date", cache.get("d"));
+        assertEquals("apple", cache.get("a"));
+
+        cache.trimToSize(10, 5);
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.sizeInBytes());
+        assertEquals("apple", cache.get("a"));
+
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.sizeInBytes());
+    }
+
+    @Test
+    public void equivalentQueries_shareAnEntry() {
+        QueryCache<String> cache = new QueryCache<>(10, 100, LENGTH,
+                query -> query.trim().toLowerCase(Locale.ENGLISH));
+        cache.put("Foo", "foo");
+        assertEquals("foo", cache.get("foo "));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void matchesAnLruList() {
+        Random random = new Random(3);
+        int maxEntries = 16;
+        long maxBytes = 64;
+        QueryCache<String> cache = new QueryCache<>(maxEntries, maxBytes, LENGTH);
+        // Least recently used first
+        List<String> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            String key = Integer.toString(random.nextInt(40));
+            int index = keys.indexOf(key);
+            if (random.nextBoolean()) {
+                String expected = index < 0 ? null : values.get(index);
+                assertEquals(key, expected, cache.get(key));
+                if (index >= 0) {
+                    keys.add(keys.remove(index));
+                    values.add(values.remove(index));
+                }
+            } else {
+                String value = PrefixIndexTest.randomText(random, random.nextInt(20));
+                cache.put(key, value);
+                if (index >= 0) {
+                    keys.remove(index);
+                    values.remove(index);
+                }
+                keys.add(key);
+                values.add(value);
+                while (keys.size() > maxEntries || bytes(values) > maxBytes) {
+                    keys.remove(0);
+                    values.remove(0);
+                }
+            }
+            assertEquals(keys.size(), cache.size());
+            assertEquals(bytes(values), cache.sizeInBytes());
+        }
+    }
+
+    private static long bytes(List<String> values) {
+        long bytes = 0;
+        for (String value : values) {
+            bytes += value.length();
+        }
+        return bytes;
+    }
+}
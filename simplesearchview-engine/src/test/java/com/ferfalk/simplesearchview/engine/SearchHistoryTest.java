@@ -0,0 +1,167 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchHistoryTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopen_restoresTheHistory() throws IOException {
+        File file = new File(folder.getRoot(), "history");
+        SearchHistory history = load(SearchHistory.open(file));
+        history.add("apple", 1);
+        history.add("banana", 2);
+        history.add("apple", 3);
+        history.add("cherry", 4);
+        history.remove("cherry");
+        history.close();
+
+        SearchHistory reopened = load(SearchHistory.open(file));
+        assertEquals(Arrays.asList("apple", "banana"), reopened.getRecent(10));
+        assertEquals(Arrays.asList("apple", "banana"), reopened.getFrequent(10));
+        reopened.clear();
+        reopened.add("date", 5);
+        reopened.close();
+
+        assertEquals(Arrays.asList("date"), load(SearchHistory.open(file)).getRecent(10));
+    }
+
+    @Test
+    public void truncatedLastRecord_isIgnoredAndOverwritten() throws IOException {
+        File file = new File(folder.getRoot(), "history");
+        SearchHistory history = load(SearchHistory.open(file));
+        history.add("apple", 1);
+        history.add("banana", 2);
+        history.close();
+        // An add record interrupted in the middle of its query
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(output.length());
+            output.writeByte(1);
+            output.writeInt(1);
+            output.writeLong(3);
+            output.writeShort(6);
+            output.write("che".getBytes("UTF-8"));
+        }
+
+        SearchHistory reopened = load(SearchHistory.open(file));
+        assertEquals(Arrays.asList("banana", "apple"), reopened.getRecent(10));
+        reopened.add("cherry", 4);
+        reopened.close();
+
+        assertEquals(Arrays.asList("cherry", "banana", "apple"), load(SearchHistory.open(file)).getRecent(10));
+    }
+
+    @Test
+    public void longLog_isCompacted() throws IOException {
+        File file = new File(folder.getRoot(), "history");
+        SearchHistory history = load(SearchHistory.open(file));
+        String[] queries = {"apple", "banana", "cherry"};
+        int adds = 2 * SearchHistory.COMPACT_MIN_RECORDS;
+        for (int i = 0; i < adds; i++) {
+            history.add(queries[i % queries.length], i);
+        }
+        history.close();
+
+        // Appends after the last compaction stop short of the threshold, far from the records of every add
+        int maxRecordSize = SearchHistory.RECORD_HEADER_SIZE + "banana".length();
+        assertTrue(file.length() <= SearchHistory.HEADER_SIZE + (long) SearchHistory.COMPACT_MIN_RECORDS * maxRecordSize);
+        assertFalse(new File(file.getPath() + ".compact").exists());
+        SearchHistory reopened = load(SearchHistory.open(file));
+        assertEquals(Arrays.asList("banana", "apple", "cherry"), reopened.getRecent(10));
+        // 2048 adds over 3 queries, apple and banana get one more
+        assertEquals(Arrays.asList("banana", "apple", "cherry"), reopened.getFrequent(10));
+        reopened.add("cherry", adds);
+        reopened.add("cherry", adds + 1);
+        reopened.close();
+
+        assertEquals(Arrays.asList("cherry", "banana", "apple"), load(SearchHistory.open(file)).getFrequent(10));
+    }
+
+    @Test
+    public void changesBeforeLoad_applyOnTopOfTheFile() throws IOException {
+        File file = new File(folder.getRoot(), "history");
+        SearchHistory history = load(SearchHistory.open(file));
+        history.add("apple", 1);
+        history.add("banana", 2);
+        history.add("cherry", 3);
+        history.close();
+
+        SearchHistory reopened = new SearchHistory(file, SearchHistory.DEFAULT_MAX_ENTRIES);
+        reopened.add("date", 4);
+        reopened.add("apple", 5);
+        reopened.remove("banana");
+        assertEquals(Arrays.asList("apple", "date"), reopened.getRecent(10));
+        reopened.startLoading();
+        load(reopened);
+        assertEquals(Arrays.asList("apple", "date", "cherry"), reopened.getRecent(10));
+        assertEquals(Arrays.asList("apple", "date", "cherry"), reopened.getFrequent(10));
+        reopened.close();
+
+        assertEquals(Arrays.asList("apple", "date", "cherry"), load(SearchHistory.open(file)).getRecent(10));
+    }
+
+    @Test
+    public void batchesBeforeLoad_keepTheFile() throws IOException {
+        File file = new File(folder.getRoot(), "history");
+        SearchHistory history = load(SearchHistory.open(file));
+        history.add("apple", 1);
+        history.close();
+        long length = file.length();
+
+        SearchHistory reopened = new SearchHistory(file, SearchHistory.DEFAULT_MAX_ENTRIES);
+        // More than a batch, written only once the file is read
+        for (int i = 0; i < 100; i++) {
+            reopened.add("query " + i, 2 + i);
+        }
+        reopened.flush();
+        assertEquals(length, file.length());
+        reopened.startLoading();
+        load(reopened);
+        assertEquals(101, reopened.size());
+        reopened.close();
+
+        SearchHistory loaded = load(SearchHistory.open(file));
+        assertEquals(101, loaded.size());
+        assertEquals(Arrays.asList("query 99", "query 98"), loaded.getRecent(2));
+        assertEquals("apple", loaded.getRecent(101).get(100));
+    }
+
+    @Test
+    public void maxEntries_dropsTheLeastRecent() throws IOException {
+        File file = new File(folder.getRoot(), "history");
+        SearchHistory history = load(SearchHistory.open(file, 3));
+        history.add("apple", 1);
+        history.add("banana", 2);
+        history.add("cherry", 3);
+        history.add("apple", 4);
+        history.add("date", 5);
+        assertEquals(3, history.size());
+        assertEquals(Arrays.asList("date", "apple", "cherry"), history.getRecent(10));
+        history.close();
+
+        SearchHistory reopened = load(SearchHistory.open(file, 3));
+        assertEquals(Arrays.asList("date", "apple", "cherry"), reopened.getRecent(10));
+        assertEquals(Arrays.asList("apple", "date", "cherry"), reopened.getFrequent(10));
+    }
+
+    /**
+     * Waits for the file to be read, the flush runs after it on the same thread
+     */
+    private static SearchHistory load(SearchHistory history) throws IOException {
+        history.flush();
+        assertTrue(history.isLoaded());
+        return history;
+    }
+}
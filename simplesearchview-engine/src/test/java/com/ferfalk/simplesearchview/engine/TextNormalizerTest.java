@@ -0,0 +1,76 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TextNormalizerTest {
+    private final TextNormalizer normalizer = new TextNormalizer(Locale.ENGLISH);
+
+    @Test
+    public void foldsCaseAndDiacritics() {
+        assertEquals("sao paulo", normalizer.normalize("São Paulo"));
+        assertEquals("creme brulee", normalizer.normalize("Crème Brûlée"));
+        assertEquals("strasse", normalizer.normalize("Straße"));
+        assertEquals("oresund", normalizer.normalize("Øresund"));
+        assertEquals("lodz", normalizer.normalize("Łódź"));
+    }
+
+    @Test
+    public void combiningMarks_areDropped() {
+        assertEquals("cafe", normalizer.normalize("Café"));
+    }
+
+    @Test
+    public void separators_collapseToOneSpace() {
+        assertEquals("rock n roll 2", normalizer.normalize("  Rock-'n'-Roll,  2! "));
+        assertEquals("", normalizer.normalize(" -- "));
+    }
+
+    @Test
+    public void turkishLocale_keepsDottedAndDotlessI() {
+        TextNormalizer turkish = new TextNormalizer(new Locale("tr"));
+        assertEquals("ıstanbul", turkish.normalize("ISTANBUL"));
+        assertEquals("istanbul", turkish.normalize("İstanbul"));
+        assertEquals("istanbul", normalizer.normalize("ISTANBUL"));
+        assertEquals("istanbul", normalizer.normalize("İstanbul"));
+    }
+
+    @Test
+    public void normalizeInto_reusesTheBuffer() {
+        StringBuilder out = new StringBuilder(32);
+        normalizer.normalize("First Query", out);
+        assertEquals("first query", out.toString());
+        normalizer.normalize("Été", out);
+        assertEquals("ete", out.toString());
+        assertEquals(32, out.capacity());
+    }
+
+    @Test
+    public void index_matchesNormalizedQueries_andReturnsTheOriginalText() {
+        PrefixIndex index = new PrefixIndex.Builder(normalizer)
+                .add("São Paulo", 5)
+                .add("sao paulo", 1)
+                .add("Santiago", 3)
+                .build();
+
+        assertEquals(2, index.size());
+        int[] results = new int[2];
+        assertEquals(1, index.complete("SAO P", results));
+        assertEquals("São Paulo", index.getTerm(results[0]));
+        assertEquals("sao paulo", index.getKey(results[0]));
+        assertEquals(2, new PrefixSearcher(index).complete("sÃ", results));
+        assertEquals(1, new FuzzyMatcher(index).complete("Sao Paolo", results));
+    }
+
+    @Test
+    public void index_withoutDisplayTexts_whenTermsAreNormalized() {
+        PrefixIndex index = new PrefixIndex.Builder(normalizer).add("lisbon").add("porto").build();
+        assertEquals(null, index.displayChars);
+        assertEquals("porto", index.getTerm(1));
+        assertSame(normalizer, index.getNormalizer());
+    }
+}
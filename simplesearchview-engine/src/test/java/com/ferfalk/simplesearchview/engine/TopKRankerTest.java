@@ -0,0 +1,88 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopKRankerTest {
+
+    @Test
+    public void keepsTheBest_bestFirst() {
+        TopKRanker ranker = new TopKRanker(3);
+        float[] scores = {5, 1, 9, 3, 7, 2};
+        for (int i = 0; i < scores.length; i++) {
+            ranker.offer(i, scores[i]);
+        }
+
+        int[] ids = new int[3];
+        float[] kept = new float[3];
+        assertEquals(3, ranker.drain(ids, kept));
+        assertArrayEquals(new int[]{2, 4, 0}, ids);
+        assertArrayEquals(new float[]{9, 7, 5}, kept, 0);
+        assertEquals(0, ranker.size());
+    }
+
+    @Test
+    public void equalScores_keepTheFirstOffered() {
+        TopKRanker ranker = new TopKRanker(2);
+        for (int i = 0; i < 5; i++) {
+            ranker.offer(i, 1);
+        }
+        int[] ids = new int[2];
+        ranker.drain(ids, null);
+        assertArrayEquals(new int[]{0, 1}, ids);
+    }
+
+    @Test
+    public void threshold_stopsTheStream() {
+        TopKRanker ranker = new TopKRanker(2);
+        assertEquals(Float.NEGATIVE_INFINITY, ranker.getThreshold(), 0);
+        assertTrue(ranker.canAccept(0));
+        ranker.offer(0, 4);
+        ranker.offer(1, 6);
+        assertTrue(ranker.isFull());
+        assertEquals(4, ranker.getThreshold(), 0);
+        assertFalse(ranker.canAccept(4));
+        assertTrue(ranker.canAccept(4.5f));
+        assertFalse(ranker.offer(2, Float.NaN));
+        assertFalse(ranker.offer(3, 4));
+    }
+
+    @Test
+    public void matchesFullSort() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            int k = 1 + random.nextInt(16);
+            int n = random.nextInt(500);
+            float[] scores = new float[n];
+            TopKRanker ranker = new TopKRanker(k);
+            for (int i = 0; i < n; i++) {
+                // Few distinct values, so ties are common
+                scores[i] = random.nextInt(50);
+                ranker.offer(i, scores[i]);
+            }
+
+            Integer[] sorted = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, Comparator.comparingDouble((Integer i) -> -scores[i]).thenComparingInt(i -> i));
+            int expectedCount = Math.min(k, n);
+            int[] expected = new int[expectedCount];
+            for (int i = 0; i < expectedCount; i++) {
+                expected[i] = sorted[i];
+            }
+
+            int[] ids = new int[k];
+            assertEquals(expectedCount, ranker.drain(ids, null));
+            assertArrayEquals(expected, Arrays.copyOf(ids, expectedCount));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ferfalk.simplesearchview.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TrigramIndexTest {
+    private final TextNormalizer normalizer = new TextNormalizer(Locale.ENGLISH);
+
+    @Test
+    public void matchesAnywhere_bestFirst() {
+        TrigramIndex index = new TrigramIndex.Builder(normalizer)
+                .add("Smartphone case", 2)
+                .add("Phone charger", 5)
+                .add("Headphones", 1)
+                .add("Laptop stand", 9)
+                .build();
+
+        int[] results = new int[4];
+        assertEquals(3, index.search("PHONE", results));
+        assertArrayEquals(new int[]{1, 0, 2}, Arrays.copyOf(results, 3));
+        assertEquals(1, index.search("ne ca", results));
+        assertEquals("Smartphone case", index.getText(results[0]));
+        assertEquals(0, index.search("phones case", results));
+    }
+
+    @Test
+    public void shortQueries_scanByWeight() {
+        TrigramIndex index = new TrigramIndex.Builder(normalizer)
+                .add("ab", 1).add("xaby", 3).add("b", 2)
+                .build();
+        int[] results = new int[3];
+        assertEquals(2, index.search("ab", results));
+        assertArrayEquals(new int[]{1, 0}, Arrays.copyOf(results, 2));
+        assertEquals(3, index.search("B", results));
+        assertArrayEquals(new int[]{1, 2, 0}, results);
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        Random random = new Random(11);
+        List<String> keys = new ArrayList<>();
+        TrigramIndex.Builder builder = new TrigramIndex.Builder(normalizer);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            text.setLength(0);
+            int length = 3 + random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                text.append((char) ('a' + random.nextInt(6)));
+            }
+            keys.add(text.toString());
+            builder.add(text.toString());
+        }
+        TrigramIndex index = builder.build();
+
+        int[] results = new int[5_000];
+        for (String query : new String[]{"a", "fe", "abc", "abcd", "aaaa", "fedcba", "eeeeee"}) {
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 0; id < keys.size(); id++) {
+                if (keys.get(id).contains(query)) {
+                    expected.add(id);
+                }
+            }
+            int count = index.search(query, results);
+            assertEquals(query, expected.size(), count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(query, (int) expected.get(i), results[i]);
+            }
+        }
+    }
+
+    @Test
+    public void horspool_findsTheFirstOccurrence() {
+        char[] text = "xxabcabcabd".toCharArray();
+        assertEquals(2, new HorspoolMatcher("abc").indexOf(text, 0, text.length));
+        assertEquals(5, new HorspoolMatcher("abc").indexOf(text, 3, text.length));
+        assertEquals(8, new HorspoolMatcher("abd").indexOf(text, 0, text.length));
+        assertEquals(-1, new HorspoolMatcher("abd").indexOf(text, 0, text.length - 1));
+        assertEquals(-1, new HorspoolMatcher("abcabcabdx").indexOf(text, 0, text.length));
+        // Shares its shift slot with 'a'
+        char[] wide = {'a', 'š', 'b'};
+        assertEquals(1, new HorspoolMatcher("šb").indexOf(wide, 0, wide.length));
+    }
+}
@@ -0,0 +1,165 @@
+package com.ferfalk.simplesearchview;
+
+import android.content.Context;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.benchmark.BenchmarkState;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the default search bar, built of MaterialButtons, with the flatRendering one.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SearchBarRenderingBenchmark {
+    private static final String TAG = "SearchBarBenchmark";
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 168;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private FrameLayout parent;
+
+    @Before
+    public void setUp() {
+        context = new ContextThemeWrapper(InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                com.google.android.material.R.style.Theme_MaterialComponents_Light_NoActionBar);
+        parent = new FrameLayout(context);
+    }
+
+    @Test
+    @UiThreadTest
+    public void inflate_buttons() {
+        benchmarkInflate(R.layout.search_view);
+    }
+
+    @Test
+    @UiThreadTest
+    public void inflate_flat() {
+        benchmarkInflate(R.layout.search_view_flat);
+    }
+
+    @Test
+    @UiThreadTest
+    public void measureLayout_buttons() {
+        benchmarkMeasureLayout(R.layout.search_view);
+    }
+
+    @Test
+    @UiThreadTest
+    public void measureLayout_flat() {
+        benchmarkMeasureLayout(R.layout.search_view_flat);
+    }
+
+    @Test
+    @UiThreadTest
+    public void toggleClearIcon_buttons() {
+        View root = inflateAndLayout(R.layout.search_view);
+        benchmarkToggleClearIcon(root, new ButtonSearchIcons(root.findViewById(R.id.buttonBack),
+                root.findViewById(R.id.buttonClear), root.findViewById(R.id.buttonVoice)));
+    }
+
+    @Test
+    @UiThreadTest
+    public void toggleClearIcon_flat() {
+        View root = inflateAndLayout(R.layout.search_view_flat);
+        benchmarkToggleClearIcon(root, (FlatSearchBar) root);
+    }
+
+    @Test
+    @UiThreadTest
+    public void viewCount_flatIsLower() {
+        int buttons = countViews(inflateAndLayout(R.layout.search_view));
+        int flat = countViews(inflateAndLayout(R.layout.search_view_flat));
+        Log.i(TAG, "View count, buttons: " + buttons + ", flat: " + flat);
+        assertTrue(flat < buttons);
+    }
+
+    private void benchmarkInflate(@LayoutRes int layout) {
+        LayoutInflater inflater = LayoutInflater.from(context);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            View root = inflater.inflate(layout, parent, false);
+            measureAndLayout(root);
+        }
+    }
+
+    /**
+     * A full measure and layout pass, as after a size or configuration change
+     */
+    private void benchmarkMeasureLayout(@LayoutRes int layout) {
+        View root = inflateAndLayout(layout);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            forceLayout(root);
+            state.resumeTiming();
+            measureAndLayout(root);
+        }
+    }
+
+    /**
+     * The clear icon shows with the first char typed and hides when the query is cleared
+     */
+    private void benchmarkToggleClearIcon(@NonNull View root, @NonNull SearchIcons icons) {
+        boolean visible = false;
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            visible = !visible;
+            icons.setIconVisible(SearchIcons.CLEAR, visible);
+            measureAndLayout(root);
+        }
+    }
+
+    @NonNull
+    private View inflateAndLayout(@LayoutRes int layout) {
+        View root = LayoutInflater.from(context).inflate(layout, parent, false);
+        measureAndLayout(root);
+        return root;
+    }
+
+    private static void measureAndLayout(@NonNull View root) {
+        root.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        root.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private static void forceLayout(@NonNull View view) {
+        view.forceLayout();
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                forceLayout(group.getChildAt(i));
+            }
+        }
+    }
+
+    private static int countViews(@NonNull View view) {
+        int count = 1;
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                count += countViews(group.getChildAt(i));
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,59 @@
+package com.ferfalk.simplesearchview.utils;
+
+import android.graphics.Color;
+import android.widget.EditText;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the first {@link EditTextReflectionUtils#setCursorColor(EditText, int)} call, which looks up the fields
+ * and tints the drawable, with the following ones.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CursorColorBenchmark {
+    private static final int[] COLORS = {Color.RED, Color.GREEN, Color.BLUE};
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private EditText editText;
+
+    @Before
+    public void setUp() {
+        editText = new EditText(InstrumentationRegistry.getInstrumentation().getTargetContext());
+    }
+
+    @Test
+    @UiThreadTest
+    public void setCursorColor_cold() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            EditTextReflectionUtils.clearCaches(editText);
+            state.resumeTiming();
+            EditTextReflectionUtils.setCursorColor(editText, Color.RED);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void setCursorColor_warm() {
+        for (int color : COLORS) {
+            EditTextReflectionUtils.setCursorColor(editText, color);
+        }
+        int i = 0;
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            EditTextReflectionUtils.setCursorColor(editText, COLORS[i++ % COLORS.length]);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.ferfalk.simplesearchview;
+
+import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.android.material.button.MaterialButton;
+
+/**
+ * Search icons shown as one MaterialButton each, the default layout
+ */
+class ButtonSearchIcons implements SearchIcons {
+    private final MaterialButton[] buttons;
+
+    ButtonSearchIcons(@NonNull MaterialButton back, @NonNull MaterialButton clear, @NonNull MaterialButton voice) {
+        buttons = new MaterialButton[COUNT];
+        buttons[BACK] = back;
+        buttons[CLEAR] = clear;
+        buttons[VOICE] = voice;
+    }
+
+    @Override
+    public void setIcon(int icon, @Nullable Drawable drawable) {
+        buttons[icon].setIcon(drawable);
+    }
+
+    @Override
+    public void setIconTint(int icon, @Nullable ColorStateList tint) {
+        buttons[icon].setIconTint(tint);
+    }
+
+    @Override
+    public void setIconAlpha(int icon, float alpha) {
+        buttons[icon].setAlpha(alpha);
+    }
+
+    @Override
+    public void setIconVisible(int icon, boolean visible) {
+        buttons[icon].setVisibility(visible ? View.VISIBLE : View.GONE);
+    }
+
+    @Override
+    public void setOnIconClickListener(int icon, @Nullable View.OnClickListener listener) {
+        buttons[icon].setOnClickListener(listener);
+    }
+}
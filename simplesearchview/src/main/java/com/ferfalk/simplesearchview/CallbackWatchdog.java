@@ -0,0 +1,320 @@
+package com.ferfalk.simplesearchview;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Debug helper that times the listener callbacks of a {@link SimpleSearchView} on the main thread and counts the
+ * frames dropped while the search opens, closes and while the query is typed.
+ * <p>
+ * A callback that runs longer than the frame budget is recorded as a {@link SlowCallback}, with the main thread
+ * stack sampled while it was still running. Without an {@link OnSlowCallbackListener} slow callbacks are logged.
+ * Recording costs a scheduled task per callback, only enable it in debug builds and tests.
+ * The results can be read from any thread.
+ */
+public final class CallbackWatchdog {
+    public static final long DEFAULT_FRAME_BUDGET_MS = 16;
+
+    public static final String ON_QUERY_TEXT_CHANGE = "onQueryTextChange";
+    public static final String ON_QUERY_TEXT_SUBMIT = "onQueryTextSubmit";
+    public static final String ON_QUERY_TEXT_CLEARED = "onQueryTextCleared";
+    public static final String ON_SUGGESTIONS = "onSuggestions";
+    public static final String ON_SEARCH_VIEW_SHOWN = "onSearchViewShown";
+    public static final String ON_SEARCH_VIEW_CLOSED = "onSearchViewClosed";
+    public static final String ON_SEARCH_VIEW_SHOWN_ANIMATION = "onSearchViewShownAnimation";
+    public static final String ON_SEARCH_VIEW_CLOSED_ANIMATION = "onSearchViewClosedAnimation";
+
+    private static final String TAG = CallbackWatchdog.class.getSimpleName();
+    private static final long NANOS_PER_MILLI = 1000_000;
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    public interface OnSlowCallbackListener {
+
+        /**
+         * Called on the main thread right after the slow callback returns
+         */
+        void onSlowCallback(@NonNull SlowCallback callback);
+    }
+
+    /**
+     * A listener callback that took longer than the frame budget
+     */
+    public static final class SlowCallback {
+        private final String name;
+        private final long durationMillis;
+        private final StackTraceElement[] stack;
+
+        SlowCallback(@NonNull String name, long durationMillis, @NonNull StackTraceElement[] stack) {
+            this.name = name;
+            this.durationMillis = durationMillis;
+            this.stack = stack;
+        }
+
+        /**
+         * @return the callback name, one of the CallbackWatchdog constants
+         */
+        @NonNull
+        public String getName() {
+            return name;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return the main thread stack once the budget was exceeded, empty if the callback returned before it
+         * could be sampled
+         */
+        @NonNull
+        public StackTraceElement[] getStack() {
+            return stack.clone();
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name + " took " + durationMillis + " ms";
+        }
+    }
+
+    private static ScheduledExecutorService sampler;
+
+    private final long frameBudgetNanos;
+    private final Runnable sampleStack = this::sampleStack;
+    private OnSlowCallbackListener listener;
+
+    // Main thread only
+    private int depth = 0;
+    private String callbackName;
+    private long callbackStartNanos;
+    private ScheduledFuture<?> scheduledSample;
+
+    // Written by the main thread, read by the sampler
+    private volatile Thread callbackThread;
+    private volatile int callbackId = 0;
+    // Written by the sampler, read by the main thread
+    private volatile int sampledId = -1;
+    private volatile StackTraceElement[] sampledStack;
+
+    // Frames, main thread only
+    private final Choreographer.FrameCallback frameCallback = this::onFrame;
+    private long frameIntervalNanos = (long) (1e9 / DEFAULT_REFRESH_RATE);
+    private boolean watchingFrames = false;
+    private long watchFramesUntilNanos = 0;
+    private long lastFrameNanos = 0;
+
+    // Guarded by this
+    private final List<SlowCallback> slowCallbacks = new ArrayList<>();
+    private int callbackCount = 0;
+    private int frameCount = 0;
+    private int droppedFrameCount = 0;
+
+    public CallbackWatchdog() {
+        this(DEFAULT_FRAME_BUDGET_MS);
+    }
+
+    /**
+     * @param frameBudgetMillis callbacks running longer than this are recorded as slow
+     */
+    public CallbackWatchdog(long frameBudgetMillis) {
+        frameBudgetNanos = Math.max(1, frameBudgetMillis) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * @param listener called for every slow callback, null to log them instead
+     */
+    public void setOnSlowCallbackListener(@Nullable OnSlowCallbackListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param refreshRate display refresh rate in frames per second, frames are expected at this rate
+     */
+    public void setRefreshRate(float refreshRate) {
+        frameIntervalNanos = (long) (1e9 / (refreshRate > 0 ? refreshRate : DEFAULT_REFRESH_RATE));
+    }
+
+    public long getFrameBudgetMillis() {
+        return frameBudgetNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the callbacks that exceeded the frame budget, oldest first
+     */
+    @NonNull
+    public synchronized List<SlowCallback> getSlowCallbacks() {
+        return Collections.unmodifiableList(new ArrayList<>(slowCallbacks));
+    }
+
+    /**
+     * @return number of timed callbacks
+     */
+    public synchronized int getCallbackCount() {
+        return callbackCount;
+    }
+
+    /**
+     * @return number of frames drawn while frames were watched
+     */
+    public synchronized int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return number of frames missed while frames were watched
+     */
+    public synchronized int getDroppedFrameCount() {
+        return droppedFrameCount;
+    }
+
+    /**
+     * Forgets the recorded callbacks and frames
+     */
+    public synchronized void reset() {
+        slowCallbacks.clear();
+        callbackCount = 0;
+        frameCount = 0;
+        droppedFrameCount = 0;
+    }
+
+    // Callbacks, main thread
+
+    /**
+     * Starts timing a callback, callbacks made from inside it are counted as part of it
+     */
+    void begin(@NonNull String name) {
+        if (depth++ > 0) {
+            return;
+        }
+        callbackName = name;
+        callbackThread = Thread.currentThread();
+        callbackId++;
+        callbackStartNanos = System.nanoTime();
+        scheduledSample = getSampler().schedule(sampleStack, frameBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void end() {
+        if (depth == 0 || --depth > 0) {
+            return;
+        }
+        long duration = System.nanoTime() - callbackStartNanos;
+        int id = callbackId;
+        // Any sample taken from now on belongs to no callback
+        callbackId++;
+        scheduledSample.cancel(false);
+        scheduledSample = null;
+
+        SlowCallback slow = null;
+        synchronized (this) {
+            callbackCount++;
+            if (duration > frameBudgetNanos) {
+                StackTraceElement[] stack = sampledId == id && sampledStack != null ? sampledStack : new StackTraceElement[0];
+                slow = new SlowCallback(callbackName, duration / NANOS_PER_MILLI, stack);
+                slowCallbacks.add(slow);
+            }
+        }
+        if (slow != null) {
+            report(slow);
+        }
+    }
+
+    /**
+     * One daemon thread samples the stacks of every watchdog
+     */
+    @NonNull
+    private static synchronized ScheduledExecutorService getSampler() {
+        if (sampler == null) {
+            sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "SimpleSearchView-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sampler;
+    }
+
+    private void sampleStack() {
+        int id = callbackId;
+        Thread thread = callbackThread;
+        if (thread == null) {
+            return;
+        }
+        StackTraceElement[] stack = thread.getStackTrace();
+        // Only kept if the same callback was still running after the sample
+        if (callbackId == id) {
+            sampledStack = stack;
+            sampledId = id;
+        }
+    }
+
+    private void report(@NonNull SlowCallback slow) {
+        if (listener != null) {
+            listener.onSlowCallback(slow);
+        } else {
+            Throwable trace = new Throwable("Slow callback");
+            trace.setStackTrace(slow.stack);
+            Log.w(TAG, slow.toString() + ", budget " + getFrameBudgetMillis() + " ms", trace);
+        }
+    }
+
+    // Frames, main thread
+
+    /**
+     * Counts the frames until at least the given time from now, does nothing if frames are already watched longer
+     */
+    void watchFrames(long millis) {
+        watchFramesUntilNanos = Math.max(watchFramesUntilNanos, System.nanoTime() + millis * NANOS_PER_MILLI);
+        if (!watchingFrames) {
+            watchingFrames = true;
+            lastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * Stops counting frames
+     */
+    void stopWatchingFrames() {
+        if (watchingFrames) {
+            watchingFrames = false;
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+        }
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        recordFrame(frameTimeNanos);
+        if (frameTimeNanos < watchFramesUntilNanos) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        } else {
+            watchingFrames = false;
+        }
+    }
+
+    /**
+     * Counts a frame, and the frames missed since the previous one
+     */
+    void recordFrame(long frameTimeNanos) {
+        long last = lastFrameNanos;
+        lastFrameNanos = frameTimeNanos;
+        synchronized (this) {
+            frameCount++;
+            if (last != 0) {
+                // Rounded, vsync timestamps jitter around the interval
+                long intervals = (frameTimeNanos - last + frameIntervalNanos / 2) / frameIntervalNanos;
+                droppedFrameCount += (int) Math.max(0, intervals - 1);
+            }
+        }
+    }
+}
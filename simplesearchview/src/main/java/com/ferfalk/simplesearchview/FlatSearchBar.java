@@ -0,0 +1,370 @@
+package com.ferfalk.simplesearchview;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.Button;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.content.res.AppCompatResources;
+import androidx.core.graphics.drawable.DrawableCompat;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+import com.ferfalk.simplesearchview.utils.DimensUtils;
+
+import java.util.List;
+
+/**
+ * Search bar of the flatRendering mode. The search EditText is its only child view, the back, clear and voice icons
+ * are drawn by the bar and their touches handled here, instead of one MaterialButton each with its own ripple,
+ * shape and state. A single ripple is moved to the pressed icon and the icons are exposed to accessibility services
+ * as virtual views.
+ * <p>
+ * Room for the clear and voice icons is always kept, so showing or hiding them only redraws the bar.
+ */
+class FlatSearchBar extends ViewGroup implements SearchIcons {
+    private static final int NO_ICON = -1;
+    private static final int BACK_SLOT_WIDTH = 56;
+    private static final int END_SLOT_WIDTH = 48;
+    private static final int MIN_HEIGHT = 48;
+    private static final int[] PRESSED_STATE = {android.R.attr.state_pressed, android.R.attr.state_enabled};
+    private static final int[] DEFAULT_STATE = {android.R.attr.state_enabled};
+
+    private final Drawable[] icons = new Drawable[COUNT];
+    private final ColorStateList[] tints = new ColorStateList[COUNT];
+    private final int[] alphas = {255, 255, 255};
+    private final boolean[] visible = {true, false, false};
+    private final OnClickListener[] clickListeners = new OnClickListener[COUNT];
+    private final CharSequence[] descriptions = new CharSequence[COUNT];
+    private final Rect[] slots = {new Rect(), new Rect(), new Rect()};
+
+    private final int backSlotWidth;
+    private final int endSlotWidth;
+    private final int minHeight;
+    private final Drawable ripple;
+    private final IconTouchHelper touchHelper;
+    private int pressedIcon = NO_ICON;
+
+    public FlatSearchBar(Context context) {
+        this(context, null);
+    }
+
+    public FlatSearchBar(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        setWillNotDraw(false);
+
+        backSlotWidth = DimensUtils.convertDpToPx(BACK_SLOT_WIDTH, context);
+        endSlotWidth = DimensUtils.convertDpToPx(END_SLOT_WIDTH, context);
+        minHeight = DimensUtils.convertDpToPx(MIN_HEIGHT, context);
+
+        setIcon(BACK, AppCompatResources.getDrawable(context, R.drawable.ic_arrow_back_black_24dp));
+        setIcon(CLEAR, AppCompatResources.getDrawable(context, R.drawable.ic_close_black_24dp));
+        setIcon(VOICE, AppCompatResources.getDrawable(context, R.drawable.ic_voice_search_black_24dp));
+        descriptions[BACK] = context.getString(R.string.action_back);
+        descriptions[CLEAR] = context.getString(R.string.action_clear_search);
+        descriptions[VOICE] = context.getString(R.string.action_voice_search);
+
+        ripple = getItemBackground(context);
+        if (ripple != null) {
+            ripple.setCallback(this);
+        }
+
+        touchHelper = new IconTouchHelper();
+        ViewCompat.setAccessibilityDelegate(this, touchHelper);
+    }
+
+    @Nullable
+    private static Drawable getItemBackground(@NonNull Context context) {
+        int attr = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                ? android.R.attr.selectableItemBackgroundBorderless
+                : android.R.attr.selectableItemBackground;
+        TypedArray typedArray = context.obtainStyledAttributes(new int[]{attr});
+        Drawable drawable = typedArray.getDrawable(0);
+        typedArray.recycle();
+        return drawable;
+    }
+
+    @Override
+    public void setIcon(int icon, @Nullable Drawable drawable) {
+        if (icons[icon] != null) {
+            icons[icon].setCallback(null);
+        }
+        if (drawable != null) {
+            drawable = DrawableCompat.wrap(drawable.mutate());
+            drawable.setCallback(this);
+            DrawableCompat.setTintList(drawable, tints[icon]);
+            drawable.setAlpha(alphas[icon]);
+            drawable.setState(getDrawableState());
+        }
+        icons[icon] = drawable;
+        updateIconBounds(icon);
+        invalidate();
+    }
+
+    @Override
+    public void setIconTint(int icon, @Nullable ColorStateList tint) {
+        tints[icon] = tint;
+        if (icons[icon] != null) {
+            DrawableCompat.setTintList(icons[icon], tint);
+            invalidate();
+        }
+    }
+
+    @Override
+    public void setIconAlpha(int icon, float alpha) {
+        alphas[icon] = Math.round(Math.max(0f, Math.min(1f, alpha)) * 255);
+        if (icons[icon] != null) {
+            icons[icon].setAlpha(alphas[icon]);
+            invalidate();
+        }
+    }
+
+    @Override
+    public void setIconVisible(int icon, boolean visible) {
+        if (this.visible[icon] == visible) {
+            return;
+        }
+        this.visible[icon] = visible;
+        if (!visible && pressedIcon == icon) {
+            setPressedIcon(NO_ICON, 0, 0);
+        }
+        touchHelper.invalidateRoot();
+        invalidate();
+    }
+
+    @Override
+    public void setOnIconClickListener(int icon, @Nullable OnClickListener listener) {
+        clickListeners[icon] = listener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        int verticalPadding = getPaddingTop() + getPaddingBottom();
+        int childWidth = Math.max(0, width - horizontalPadding - backSlotWidth - endSlotWidth);
+
+        View child = getChildCount() > 0 ? getChildAt(0) : null;
+        int contentHeight = 0;
+        if (child != null) {
+            child.measure(MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY),
+                    getChildMeasureSpec(heightMeasureSpec, verticalPadding, LayoutParams.WRAP_CONTENT));
+            contentHeight = child.getMeasuredHeight();
+        }
+
+        int height = resolveSize(Math.max(minHeight, contentHeight + verticalPadding), heightMeasureSpec);
+        int childHeight = Math.max(0, height - verticalPadding);
+        if (child != null && child.getMeasuredHeight() != childHeight) {
+            // The EditText fills the bar height, like match_parent
+            child.measure(MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.EXACTLY));
+        }
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        int top = getPaddingTop();
+        int bottom = b - t - getPaddingBottom();
+        int left = getPaddingLeft();
+        int right = r - l - getPaddingRight();
+
+        Rect endSlot = slots[CLEAR];
+        if (ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL) {
+            slots[BACK].set(right - backSlotWidth, top, right, bottom);
+            endSlot.set(left, top, left + endSlotWidth, bottom);
+        } else {
+            slots[BACK].set(left, top, left + backSlotWidth, bottom);
+            endSlot.set(right - endSlotWidth, top, right, bottom);
+        }
+        slots[VOICE].set(endSlot);
+
+        if (getChildCount() > 0) {
+            View child = getChildAt(0);
+            int childLeft = Math.min(slots[BACK].right, endSlot.right);
+            child.layout(childLeft, top, childLeft + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+        }
+        for (int icon = 0; icon < COUNT; icon++) {
+            updateIconBounds(icon);
+        }
+    }
+
+    private void updateIconBounds(int icon) {
+        Drawable drawable = icons[icon];
+        if (drawable == null) {
+            return;
+        }
+        Rect slot = slots[icon];
+        int width = drawable.getIntrinsicWidth();
+        int height = drawable.getIntrinsicHeight();
+        int left = slot.centerX() - width / 2;
+        int top = slot.centerY() - height / 2;
+        drawable.setBounds(left, top, left + width, top + height);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (ripple != null) {
+            ripple.draw(canvas);
+        }
+        for (int icon = 0; icon < COUNT; icon++) {
+            if (visible[icon] && icons[icon] != null) {
+                icons[icon].draw(canvas);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int x = (int) event.getX();
+        int y = (int) event.getY();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setPressedIcon(findClickableIcon(x, y), x, y);
+                return pressedIcon != NO_ICON;
+            case MotionEvent.ACTION_MOVE:
+                if (pressedIcon != NO_ICON && !slots[pressedIcon].contains(x, y)) {
+                    setPressedIcon(NO_ICON, x, y);
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                int icon = pressedIcon;
+                setPressedIcon(NO_ICON, x, y);
+                if (icon != NO_ICON) {
+                    performIconClick(icon);
+                }
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                setPressedIcon(NO_ICON, x, y);
+                return true;
+            default:
+                return pressedIcon != NO_ICON;
+        }
+    }
+
+    private int findClickableIcon(int x, int y) {
+        for (int icon = 0; icon < COUNT; icon++) {
+            if (visible[icon] && clickListeners[icon] != null && slots[icon].contains(x, y)) {
+                return icon;
+            }
+        }
+        return NO_ICON;
+    }
+
+    private void setPressedIcon(int icon, int x, int y) {
+        pressedIcon = icon;
+        if (ripple == null) {
+            return;
+        }
+        if (icon != NO_ICON) {
+            Rect slot = slots[icon];
+            ripple.setBounds(slot);
+            DrawableCompat.setHotspotBounds(ripple, slot.left, slot.top, slot.right, slot.bottom);
+            DrawableCompat.setHotspot(ripple, x, y);
+            ripple.setState(PRESSED_STATE);
+        } else {
+            ripple.setState(DEFAULT_STATE);
+        }
+        invalidate();
+    }
+
+    private boolean performIconClick(int icon) {
+        OnClickListener listener = clickListeners[icon];
+        if (listener == null || !visible[icon]) {
+            return false;
+        }
+        playSoundEffect(SoundEffectConstants.CLICK);
+        listener.onClick(this);
+        touchHelper.sendEventForVirtualView(icon, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        return true;
+    }
+
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        int[] state = getDrawableState();
+        for (Drawable icon : icons) {
+            if (icon != null && icon.isStateful()) {
+                icon.setState(state);
+            }
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        if (who == ripple) {
+            return true;
+        }
+        for (Drawable icon : icons) {
+            if (who == icon) {
+                return true;
+            }
+        }
+        return super.verifyDrawable(who);
+    }
+
+    @Override
+    public void jumpDrawablesToCurrentState() {
+        super.jumpDrawablesToCurrentState();
+        if (ripple != null) {
+            ripple.jumpToCurrentState();
+        }
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return touchHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+
+    private class IconTouchHelper extends ExploreByTouchHelper {
+
+        IconTouchHelper() {
+            super(FlatSearchBar.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int icon = findClickableIcon((int) x, (int) y);
+            return icon != NO_ICON ? icon : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int icon = 0; icon < COUNT; icon++) {
+                if (visible[icon] && clickListeners[icon] != null) {
+                    virtualViewIds.add(icon);
+                }
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, @NonNull AccessibilityNodeInfoCompat node) {
+            node.setClassName(Button.class.getName());
+            node.setContentDescription(descriptions[virtualViewId]);
+            node.setBoundsInParent(slots[virtualViewId]);
+            node.setClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments) {
+            return action == AccessibilityNodeInfoCompat.ACTION_CLICK && performIconClick(virtualViewId);
+        }
+    }
+}
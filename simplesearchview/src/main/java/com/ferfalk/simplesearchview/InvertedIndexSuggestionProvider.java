@@ -0,0 +1,50 @@
+package com.ferfalk.simplesearchview;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+
+import com.ferfalk.simplesearchview.engine.InvertedIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suggests the highest weighted entries of an {@link InvertedIndex} that contain every word of the query, in any
+ * order, the last word as a prefix. Suggestions are scored with the weight of their entry,
+ * their ids derive from their text so the same entry suggested by several providers is shown once.
+ */
+public class InvertedIndexSuggestionProvider implements SuggestionProvider {
+    public static final int DEFAULT_LIMIT = 8;
+
+    private final InvertedIndex index;
+    private final int[] ids;
+
+    public InvertedIndexSuggestionProvider(@NonNull InvertedIndex index) {
+        this(index, DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param index entries to suggest
+     * @param limit maximum number of suggestions per query
+     */
+    public InvertedIndexSuggestionProvider(@NonNull InvertedIndex index, int limit) {
+        this.index = index;
+        ids = new int[limit];
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Suggestion> getSuggestions(@NonNull String query, @NonNull CancellationSignal cancellationSignal) {
+        int count = index.search(query, ids);
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        List<Suggestion> suggestions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            suggestions.add(new Suggestion(index.getText(ids[i]), index.getWeight(ids[i])));
+        }
+        return suggestions;
+    }
+}
@@ -0,0 +1,115 @@
+package com.ferfalk.simplesearchview;
+
+import java.util.Arrays;
+
+/**
+ * Distribution of durations in microseconds, in fixed log scale buckets so recording never allocates.
+ * Every power of two is split in 8 buckets, percentiles are within about 12% of the recorded values.
+ * Not thread safe.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * @param micros duration in microseconds, negative values count as 0
+     */
+    void record(long micros) {
+        long value = Math.max(0, micros);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * @return number of recorded durations
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return shortest recorded duration in microseconds, 0 if none
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return longest recorded duration in microseconds, 0 if none
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return mean of the recorded durations in microseconds, 0 if none
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * @param percentile from 0 to 100, 50 for the median
+     * @return the duration in microseconds below which the given percentage of durations fall, 0 if none
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, upperBoundOf(bucket)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Values below 8 get a bucket each, then every power of two is split in 8 buckets of equal width
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the highest value that falls in the bucket
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
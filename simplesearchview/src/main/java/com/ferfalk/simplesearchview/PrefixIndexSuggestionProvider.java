@@ -0,0 +1,72 @@
+package com.ferfalk.simplesearchview;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+
+import com.ferfalk.simplesearchview.engine.FuzzyMatcher;
+import com.ferfalk.simplesearchview.engine.PrefixIndex;
+import com.ferfalk.simplesearchview.engine.PrefixSearcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suggests the highest weighted terms of a {@link PrefixIndex} that start with the query.
+ * While the user keeps typing, each query only narrows the matches of the previous one, see {@link PrefixSearcher}.
+ * With a max edit distance, misspelled queries are completed too, ranked after the exact prefix matches, see {@link FuzzyMatcher}.
+ * Suggestions are scored with the weight of their term, their ids derive from their text so the same term suggested
+ * by several providers is shown once.
+ */
+public class PrefixIndexSuggestionProvider implements SuggestionProvider {
+    public static final int DEFAULT_LIMIT = 8;
+
+    private final PrefixIndex index;
+    private final PrefixSearcher searcher;
+    private final int[] ids;
+    private FuzzyMatcher fuzzyMatcher;
+
+    public PrefixIndexSuggestionProvider(@NonNull PrefixIndex index) {
+        this(index, DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param index terms to suggest
+     * @param limit maximum number of suggestions per query
+     */
+    public PrefixIndexSuggestionProvider(@NonNull PrefixIndex index, int limit) {
+        this.index = index;
+        searcher = new PrefixSearcher(index);
+        ids = new int[limit];
+    }
+
+    /**
+     * Enables typo tolerant suggestions, they are only looked up when there are not enough exact prefix matches
+     *
+     * @param maxEditDistance maximum number of edits between the query and a term prefix, 0 disables it
+     */
+    public synchronized void setMaxEditDistance(int maxEditDistance) {
+        fuzzyMatcher = maxEditDistance > 0 ? new FuzzyMatcher(index, maxEditDistance) : null;
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Suggestion> getSuggestions(@NonNull String query, @NonNull CancellationSignal cancellationSignal) {
+        if (query.isEmpty()) {
+            searcher.reset();
+            return Collections.emptyList();
+        }
+
+        int count = searcher.complete(query, ids);
+        if (count < ids.length && fuzzyMatcher != null) {
+            // Exact prefix matches come first in the fuzzy results too
+            count = fuzzyMatcher.complete(query, ids);
+        }
+        List<Suggestion> suggestions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            suggestions.add(new Suggestion(index.getTerm(ids[i]), index.getWeight(ids[i])));
+        }
+        return suggestions;
+    }
+}
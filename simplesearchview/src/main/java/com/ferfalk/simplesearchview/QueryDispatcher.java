@@ -0,0 +1,93 @@
+package com.ferfalk.simplesearchview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Sits between the search EditText and the {@link SimpleSearchView.OnQueryTextListener}.
+ * Coalesces bursts of query changes into a single dispatch after a debounce window.
+ * The query itself is not carried, the target reads the current one when it is called.
+ */
+class QueryDispatcher {
+
+    interface Target {
+        void dispatch();
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable windowEnd = this::onWindowEnd;
+    private final Target target;
+
+    private int debounce = 0;
+    @SimpleSearchView.DispatchMode
+    private int mode = SimpleSearchView.DISPATCH_TRAILING;
+
+    private boolean pending = false;
+    private boolean windowOpen = false;
+
+    QueryDispatcher(@NonNull Target target) {
+        this.target = target;
+    }
+
+    /**
+     * @param debounce debounce window in ms, 0 dispatches every change immediately
+     */
+    void setDebounce(int debounce) {
+        this.debounce = Math.max(0, debounce);
+        if (this.debounce == 0) {
+            flush();
+        }
+    }
+
+    void setMode(@SimpleSearchView.DispatchMode int mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Queues a query change, the target is only called when the window allows it
+     */
+    void submit() {
+        if (debounce == 0) {
+            target.dispatch();
+            return;
+        }
+
+        if (mode == SimpleSearchView.DISPATCH_LEADING_TRAILING && !windowOpen) {
+            pending = false;
+            target.dispatch();
+        } else {
+            pending = true;
+        }
+
+        windowOpen = true;
+        handler.removeCallbacks(windowEnd);
+        handler.postDelayed(windowEnd, debounce);
+    }
+
+    /**
+     * Dispatches the pending query now, if any, and closes the current window
+     */
+    void flush() {
+        handler.removeCallbacks(windowEnd);
+        onWindowEnd();
+    }
+
+    /**
+     * Drops the pending query, if any, and closes the current window
+     */
+    void cancel() {
+        handler.removeCallbacks(windowEnd);
+        windowOpen = false;
+        pending = false;
+    }
+
+    private void onWindowEnd() {
+        windowOpen = false;
+        if (pending) {
+            pending = false;
+            target.dispatch();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ferfalk.simplesearchview;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The clear and voice icons, which follow whether the query is empty.
+ * They are only touched, and voice search only looked up, when the query becomes empty or stops being empty,
+ * so the keystrokes in between cost nothing here.
+ */
+class QueryIcons {
+    private final QueryTextState queryState;
+    private final SearchIcons icons;
+    private final VoiceAvailability.Lookup voiceSearch;
+
+    /**
+     * @param voiceSearch whether voice search is enabled and available, only asked when the voice icon is shown
+     */
+    QueryIcons(@NonNull QueryTextState queryState, @NonNull SearchIcons icons, @NonNull VoiceAvailability.Lookup voiceSearch) {
+        this.queryState = queryState;
+        this.icons = icons;
+        this.voiceSearch = voiceSearch;
+    }
+
+    /**
+     * Copies the new text into the query state, then updates the icons if it became empty or stopped being empty
+     */
+    void onTextChanged(@NonNull CharSequence newText) {
+        if (queryState.updateEmptiness(newText)) {
+            boolean hasText = !queryState.isEmpty();
+            icons.setIconVisible(SearchIcons.CLEAR, hasText);
+            showVoice(!hasText);
+        }
+    }
+
+    void showVoice(boolean show) {
+        icons.setIconVisible(SearchIcons.VOICE, show && voiceSearch.isVoiceAvailable());
+    }
+}
@@ -0,0 +1,95 @@
+package com.ferfalk.simplesearchview;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Keystroke bookkeeping of the search query.
+ * The text is copied into reused buffers and only turned into a String when a String consumer asks for it,
+ * so typing allocates nothing in steady state.
+ */
+class QueryTextState {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+    private final StringBuilder dispatchedText = new StringBuilder(INITIAL_CAPACITY);
+    private boolean dispatched = false;
+    private String string;
+
+    /**
+     * Copies the new text, nothing is copied when it did not change
+     *
+     * @return true if the text changed
+     */
+    boolean update(@NonNull CharSequence newText) {
+        if (contentEquals(text, newText)) {
+            return false;
+        }
+        text.setLength(0);
+        text.append(newText);
+        string = null;
+        return true;
+    }
+
+    /**
+     * Copies the new text, like {@link #update}
+     *
+     * @return true if the text became empty or stopped being empty, the only changes the clear and voice buttons follow
+     */
+    boolean updateEmptiness(@NonNull CharSequence newText) {
+        boolean wasEmpty = isEmpty();
+        update(newText);
+        return wasEmpty != isEmpty();
+    }
+
+    /**
+     * Marks the current text as dispatched
+     *
+     * @return true if it differs from the text dispatched before
+     */
+    boolean dispatch() {
+        if (dispatched && contentEquals(dispatchedText, text)) {
+            return false;
+        }
+        dispatchedText.setLength(0);
+        dispatchedText.append(text);
+        dispatched = true;
+        return true;
+    }
+
+    boolean isEmpty() {
+        return text.length() == 0;
+    }
+
+    /**
+     * @return the current text, a live buffer that changes with the next update
+     */
+    @NonNull
+    CharSequence getText() {
+        return text;
+    }
+
+    /**
+     * @return the current text as a String, created once per change
+     */
+    @NonNull
+    @Override
+    public String toString() {
+        if (string == null) {
+            string = text.toString();
+        }
+        return string;
+    }
+
+    private static boolean contentEquals(@NonNull CharSequence a, @NonNull CharSequence b) {
+        int length = a.length();
+        if (length != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
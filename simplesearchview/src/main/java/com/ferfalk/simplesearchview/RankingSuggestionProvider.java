@@ -0,0 +1,122 @@
+package com.ferfalk.simplesearchview;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+
+import com.ferfalk.simplesearchview.engine.TopKRanker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suggests the best scored items of a list, for sources that score every item against the query.
+ * <p>
+ * Only the best {@code limit} items are kept while scoring, in a {@link TopKRanker}, instead of collecting every
+ * match and sorting them. Items are scanned in decreasing order of {@link #getMaxScore(Object)}, so the scan stops
+ * as soon as the remaining items cannot beat the worst kept one.
+ */
+public abstract class RankingSuggestionProvider<T> implements SuggestionProvider {
+    public static final int DEFAULT_LIMIT = 8;
+
+    private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+
+    private final List<T> items;
+    // Item positions by decreasing max score, and their max scores, sorted on the first query
+    private int[] order;
+    private float[] maxScores;
+    private final TopKRanker ranker;
+    private final int[] ids;
+    private final float[] scores;
+
+    public RankingSuggestionProvider(@NonNull List<T> items) {
+        this(items, DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param items items to suggest, copied
+     * @param limit maximum number of suggestions per query
+     */
+    public RankingSuggestionProvider(@NonNull List<T> items, int limit) {
+        this.items = new ArrayList<>(items);
+        ranker = new TopKRanker(limit);
+        ids = new int[limit];
+        scores = new float[limit];
+    }
+
+    /**
+     * @return the score of the item for the query, higher is better, negative or NaN if it doesn't match
+     */
+    protected abstract float getScore(@NonNull String query, @NonNull T item);
+
+    /**
+     * Called once per item, before the first query
+     *
+     * @return the highest score the item can get for any query, by default no bound, which scans every item
+     */
+    protected float getMaxScore(@NonNull T item) {
+        return Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the suggestion shown for the item
+     */
+    @NonNull
+    protected Suggestion createSuggestion(@NonNull T item, float score) {
+        return new Suggestion(item.toString(), score);
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Suggestion> getSuggestions(@NonNull String query, @NonNull CancellationSignal cancellationSignal) {
+        if (order == null) {
+            sortByMaxScore();
+        }
+        ranker.reset();
+        for (int i = 0; i < order.length; i++) {
+            if (!ranker.canAccept(maxScores[i])) {
+                break;
+            }
+            if (i % CANCELLATION_CHECK_INTERVAL == 0) {
+                cancellationSignal.throwIfCanceled();
+            }
+            float score = getScore(query, items.get(order[i]));
+            if (score >= 0) {
+                ranker.offer(order[i], score);
+            }
+        }
+
+        int count = ranker.drain(ids, scores);
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        List<Suggestion> suggestions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            suggestions.add(createSuggestion(items.get(ids[i]), scores[i]));
+        }
+        return suggestions;
+    }
+
+    private void sortByMaxScore() {
+        int size = items.size();
+        float[] bounds = new float[size];
+        // Decreasing max score in the high bits, position in the low bits, sorted as primitives
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            bounds[i] = getMaxScore(items.get(i));
+            int bits = Float.floatToIntBits(bounds[i]);
+            int sortable = bits ^ ((bits >> 31) & Integer.MAX_VALUE);
+            keys[i] = ((long) ~sortable << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        order = new int[size];
+        maxScores = new float[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (int) keys[i];
+            maxScores[i] = bounds[order[i]];
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ferfalk.simplesearchview;
+
+import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * The back, clear and voice icons of the search bar, either buttons or drawn by a {@link FlatSearchBar}
+ */
+interface SearchIcons {
+    int BACK = 0;
+    int CLEAR = 1;
+    int VOICE = 2;
+    int COUNT = 3;
+
+    void setIcon(int icon, @Nullable Drawable drawable);
+
+    void setIconTint(int icon, @Nullable ColorStateList tint);
+
+    void setIconAlpha(int icon, float alpha);
+
+    void setIconVisible(int icon, boolean visible);
+
+    void setOnIconClickListener(int icon, @Nullable View.OnClickListener listener);
+}
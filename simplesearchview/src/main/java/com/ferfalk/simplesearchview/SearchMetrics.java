@@ -0,0 +1,229 @@
+package com.ferfalk.simplesearchview;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Performance of one search session, from {@link SimpleSearchView#showSearch()} to {@link SimpleSearchView#closeSearch()}.
+ * <p>
+ * Recorded on the main thread into primitive counters and histograms, nothing is allocated while the user types.
+ * The same instance is reused for every session, it is only valid during
+ * {@link SimpleSearchView.SearchMetricsListener#onSearchSessionEnd(SearchMetrics)}.
+ */
+public final class SearchMetrics {
+    private static final long NANOS_PER_MICRO = 1000;
+    private static final long NANOS_PER_MILLI = 1000_000;
+
+    private final LatencyHistogram keystrokeToResult = new LatencyHistogram();
+    private final LatencyHistogram providerTime = new LatencyHistogram();
+
+    private boolean sessionStarted;
+    private boolean sessionEnded;
+    private long sessionStartNanos;
+    private long sessionEndNanos;
+    private long openStartNanos;
+    private long closeStartNanos;
+    private long openAnimationNanos;
+    private long closeAnimationNanos;
+    // Keystroke still waiting for results, 0 if none
+    private long keystrokeNanos;
+
+    private int queryChanges;
+    private int dispatchedQueries;
+    private int cacheHits;
+    private int cacheMisses;
+
+    SearchMetrics() {
+        reset();
+    }
+
+    // Recording, main thread only
+
+    void startSession(long nowNanos) {
+        reset();
+        sessionStarted = true;
+        sessionStartNanos = nowNanos;
+        openStartNanos = nowNanos;
+    }
+
+    /**
+     * @return true between the start and the end of a session
+     */
+    boolean isSessionOpen() {
+        return sessionStarted && !sessionEnded;
+    }
+
+    /**
+     * @return true once a session has ended, until it is reset
+     */
+    boolean isSessionEnded() {
+        return sessionEnded;
+    }
+
+    void onOpenAnimationEnd(long nowNanos) {
+        if (isSessionOpen() && openStartNanos != 0) {
+            openAnimationNanos = nowNanos - openStartNanos;
+            openStartNanos = 0;
+        }
+    }
+
+    void endSession(long nowNanos) {
+        if (!isSessionOpen()) {
+            return;
+        }
+        sessionEnded = true;
+        sessionEndNanos = nowNanos;
+        closeStartNanos = nowNanos;
+        keystrokeNanos = 0;
+    }
+
+    void onCloseAnimationEnd(long nowNanos) {
+        if (sessionEnded && closeStartNanos != 0) {
+            closeAnimationNanos = nowNanos - closeStartNanos;
+            closeStartNanos = 0;
+        }
+    }
+
+    void onQueryChange(long nowNanos) {
+        if (!isSessionOpen()) {
+            return;
+        }
+        queryChanges++;
+        keystrokeNanos = nowNanos;
+    }
+
+    void onQueryDispatch() {
+        if (!isSessionOpen()) {
+            return;
+        }
+        dispatchedQueries++;
+    }
+
+    void onResults(long nowNanos) {
+        if (isSessionOpen() && keystrokeNanos != 0) {
+            keystrokeToResult.record((nowNanos - keystrokeNanos) / NANOS_PER_MICRO);
+            keystrokeNanos = 0;
+        }
+    }
+
+    void onProviderTime(long nanos) {
+        if (!isSessionOpen()) {
+            return;
+        }
+        providerTime.record(nanos / NANOS_PER_MICRO);
+    }
+
+    void onCacheHit() {
+        if (!isSessionOpen()) {
+            return;
+        }
+        cacheHits++;
+    }
+
+    void onCacheMiss() {
+        if (!isSessionOpen()) {
+            return;
+        }
+        cacheMisses++;
+    }
+
+    void reset() {
+        keystrokeToResult.reset();
+        providerTime.reset();
+        sessionStarted = false;
+        sessionEnded = false;
+        sessionStartNanos = 0;
+        sessionEndNanos = 0;
+        openStartNanos = 0;
+        closeStartNanos = 0;
+        openAnimationNanos = -1;
+        closeAnimationNanos = -1;
+        keystrokeNanos = 0;
+        queryChanges = 0;
+        dispatchedQueries = 0;
+        cacheHits = 0;
+        cacheMisses = 0;
+    }
+
+    // Reading
+
+    /**
+     * @return time from opening to closing the search, in ms
+     */
+    public long getSessionDuration() {
+        return (sessionEndNanos - sessionStartNanos) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return time from a query change to the first suggestions delivered for it, in microseconds.
+     * Includes the debounce, cache hits are delivered right away
+     */
+    @NonNull
+    public LatencyHistogram getKeystrokeToResultLatency() {
+        return keystrokeToResult;
+    }
+
+    /**
+     * @return time spent in the SuggestionProvider by the loads that were delivered, in microseconds
+     */
+    @NonNull
+    public LatencyHistogram getProviderTime() {
+        return providerTime;
+    }
+
+    /**
+     * @return number of suggestion lookups served by the cache
+     */
+    public int getCacheHitCount() {
+        return cacheHits;
+    }
+
+    /**
+     * @return number of suggestion lookups sent to the SuggestionProvider
+     */
+    public int getCacheMissCount() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return share of the suggestion lookups served by the cache, from 0 to 1, 0 if there was none
+     */
+    public float getCacheHitRatio() {
+        int lookups = cacheHits + cacheMisses;
+        return lookups == 0 ? 0 : (float) cacheHits / lookups;
+    }
+
+    /**
+     * @return number of query text changes
+     */
+    public int getQueryChangeCount() {
+        return queryChanges;
+    }
+
+    /**
+     * @return number of query changes dispatched to the listeners and the SuggestionProvider
+     */
+    public int getDispatchedQueryCount() {
+        return dispatchedQueries;
+    }
+
+    /**
+     * @return number of query changes merged into a later one by the debounce, or dropped by closing the search
+     */
+    public int getCoalescedQueryCount() {
+        return Math.max(0, queryChanges - dispatchedQueries);
+    }
+
+    /**
+     * @return duration of the open animation in ms, -1 if it didn't finish
+     */
+    public long getOpenAnimationDuration() {
+        return openAnimationNanos < 0 ? -1 : openAnimationNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return duration of the close animation in ms, -1 if it didn't finish, as when the search is opened again
+     */
+    public long getCloseAnimationDuration() {
+        return closeAnimationNanos < 0 ? -1 : closeAnimationNanos / NANOS_PER_MILLI;
+    }
+}
@@ -0,0 +1,162 @@
+package com.ferfalk.simplesearchview;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ObjectAnimator;
+import android.view.View;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Cross fades between the toolbar and the search view.
+ * One pair of animators is created per view and reused for every open and close. Toggling mid-flight
+ * cancels the running fade and continues from the current alpha, so the end state always matches the last call.
+ */
+class SearchTransition {
+    private static final int DURATION = 100;
+    private static final float EMPTY_ALPHA = 0f;
+    private static final float FULL_ALPHA = 1f;
+
+    private final View searchView;
+    private final Interpolator interpolator = new AccelerateDecelerateInterpolator();
+    private View toolbar;
+
+    private ObjectAnimator searchFade;
+    private ObjectAnimator toolbarFade;
+    private SimpleSearchView.onAnimationEnd endAction;
+    private boolean cancelled = false;
+
+    SearchTransition(@NonNull View searchView) {
+        this.searchView = searchView;
+    }
+
+    void setToolbar(@Nullable View toolbar) {
+        if (this.toolbar == toolbar) {
+            return;
+        }
+        cancel();
+        this.toolbar = toolbar;
+        if (toolbarFade != null) {
+            toolbarFade.setTarget(toolbar);
+        }
+    }
+
+    /**
+     * @param endAction called once the search view is fully shown, not called if the transition is cancelled
+     */
+    void show(boolean animate, @Nullable SimpleSearchView.onAnimationEnd endAction) {
+        start(FULL_ALPHA, animate, endAction);
+    }
+
+    /**
+     * @param endAction called once the search view is fully closed, not called if the transition is cancelled
+     */
+    void close(boolean animate, @Nullable SimpleSearchView.onAnimationEnd endAction) {
+        start(EMPTY_ALPHA, animate, endAction);
+    }
+
+    /**
+     * Stops the running fade where it is, its end action is not called
+     */
+    void cancel() {
+        if (searchFade != null && searchFade.isStarted()) {
+            searchFade.cancel();
+            if (toolbarFade != null) {
+                toolbarFade.cancel();
+            }
+        }
+    }
+
+    /**
+     * Jumps the running fade to its end state, its end action is called
+     */
+    void end() {
+        if (searchFade != null && searchFade.isStarted()) {
+            if (toolbarFade != null) {
+                toolbarFade.end();
+            }
+            searchFade.end();
+        }
+    }
+
+    private void start(float searchAlpha, boolean animate, @Nullable SimpleSearchView.onAnimationEnd endAction) {
+        cancel();
+        this.endAction = endAction;
+        float toolbarAlpha = FULL_ALPHA - searchAlpha;
+
+        if (!animate) {
+            searchView.setAlpha(searchAlpha);
+            if (toolbar != null) {
+                toolbar.setAlpha(toolbarAlpha);
+            }
+            onEnd();
+            return;
+        }
+
+        createAnimators();
+        float searchFrom = visibleAlpha(searchView);
+        // The duration follows the distance left, a reversed fade takes as long as the part already played
+        long duration = (long) (DURATION * Math.abs(searchAlpha - searchFrom));
+
+        if (toolbar != null) {
+            toolbarFade.setFloatValues(visibleAlpha(toolbar), toolbarAlpha);
+            toolbarFade.setDuration(duration);
+            toolbarFade.start();
+        }
+        searchFade.setFloatValues(searchFrom, searchAlpha);
+        searchFade.setDuration(duration);
+        searchFade.start();
+    }
+
+    private void createAnimators() {
+        if (searchFade != null) {
+            return;
+        }
+
+        searchFade = ObjectAnimator.ofFloat(searchView, View.ALPHA, EMPTY_ALPHA, FULL_ALPHA);
+        searchFade.setInterpolator(interpolator);
+        searchFade.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationStart(Animator animation) {
+                cancelled = false;
+                searchView.setVisibility(View.VISIBLE);
+                if (toolbar != null) {
+                    toolbar.setVisibility(View.VISIBLE);
+                }
+            }
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                cancelled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (!cancelled) {
+                    onEnd();
+                }
+            }
+        });
+
+        toolbarFade = ObjectAnimator.ofFloat(toolbar, View.ALPHA, FULL_ALPHA, EMPTY_ALPHA);
+        toolbarFade.setInterpolator(interpolator);
+    }
+
+    private void onEnd() {
+        SimpleSearchView.onAnimationEnd action = endAction;
+        endAction = null;
+        if (action != null) {
+            action.method();
+        }
+    }
+
+    /**
+     * @return the alpha the view is seen with, a hidden view counts as transparent
+     */
+    private static float visibleAlpha(@NonNull View view) {
+        return view.getVisibility() == View.VISIBLE ? view.getAlpha() : EMPTY_ALPHA;
+    }
+}
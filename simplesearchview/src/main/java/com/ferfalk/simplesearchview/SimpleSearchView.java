@@ -1,17 +1,14 @@
 package com.ferfalk.simplesearchview;
 
 import android.animation.Animator;
-import android.animation.AnimatorSet;
-import android.animation.ObjectAnimator;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
 import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
 import android.graphics.Color;
 import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Build;
@@ -23,10 +20,12 @@ import androidx.annotation.ColorInt;
 import androidx.annotation.DrawableRes;
 import androidx.annotation.IntDef;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.graphics.drawable.DrawableCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.appbar.MaterialToolbar;
-import com.google.android.material.button.MaterialButton;
 import com.google.android.material.tabs.TabLayout;
 
 import android.text.TextUtils;
@@ -38,11 +37,13 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver;
-import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.WindowManager;
 import android.view.inputmethod.EditorInfo;
 import android.widget.EditText;
 import android.widget.FrameLayout;
 
+import com.ferfalk.simplesearchview.engine.QueryCache;
+import com.ferfalk.simplesearchview.engine.SearchHistory;
 import com.ferfalk.simplesearchview.utils.ContextUtils;
 import com.ferfalk.simplesearchview.utils.DimensUtils;
 import com.ferfalk.simplesearchview.utils.EditTextReflectionUtils;
@@ -52,6 +53,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
 
 import static android.app.Activity.RESULT_OK;
 
@@ -65,29 +69,45 @@ public class SimpleSearchView extends FrameLayout {
     private static final int CARD_PADDING = 6;
     private static final int CARD_ELEVATION = 2;
     private static final float ICONS_ALPHA_DEFAULT = 0.54f;
+    private static final int SUGGESTIONS_POOL_SIZE = 20;
+    private static final int HISTORY_SUGGESTIONS_LIMIT = 8;
+    private static final int WATCHDOG_TYPING_FRAMES_MS = 500;
 
     public static final int STYLE_BAR = 0;
     public static final int STYLE_CARD = 1;
     public static final int MATERIAL_SURFACE = 2;
     public static final int MATERIAL_PRIMARY = 3;
 
-    private static final float EMPTY_ALPHA = 0f;
-    private static final float FULL_ALPHA = 1f;
+    public static final int DISPATCH_TRAILING = 0;
+    public static final int DISPATCH_LEADING_TRAILING = 1;
+
+    public static final int TAB_ANIMATION_HEIGHT = 0;
+    public static final int TAB_ANIMATION_CLIP = 1;
 
     private MaterialToolbar toolbar;
     private int toolbarId;
-    private AnimatorSet animatorSet;
+    private final SearchTransition searchTransition = new SearchTransition(this);
 
     @IntDef({STYLE_BAR, STYLE_CARD, MATERIAL_SURFACE, MATERIAL_PRIMARY})
     @Retention(RetentionPolicy.SOURCE)
     @interface Style {
     }
 
+    @IntDef({DISPATCH_TRAILING, DISPATCH_LEADING_TRAILING})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface DispatchMode {
+    }
+
+    @IntDef({TAB_ANIMATION_HEIGHT, TAB_ANIMATION_CLIP})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface TabAnimation {
+    }
+
     private Context context;
     private int animationDuration = SimpleAnimationUtils.ANIMATION_DURATION_DEFAULT;
 
     private CharSequence query;
-    private CharSequence oldQuery;
+    private final QueryTextState queryState = new QueryTextState();
     private boolean allowVoiceSearch = false;
     private boolean isSearchOpen = false;
     private boolean isClearingFocus = false;
@@ -97,21 +117,44 @@ public class SimpleSearchView extends FrameLayout {
 
     private ViewGroup searchContainer;
     private EditText searchEditText;
-    private MaterialButton backButton;
-    private MaterialButton clearButton;
-    private MaterialButton voiceButton;
+    private SearchIcons icons;
+    private QueryIcons queryIcons;
+    private boolean flatRendering = false;
 
     private TabLayout tabLayout;
     private int tabLayoutInitialHeight;
+    @TabAnimation
+    private int tabLayoutAnimation = TAB_ANIMATION_HEIGHT;
+    private Animator tabLayoutAnimator;
+
+    private RecyclerView suggestionsView;
+    private SuggestionsAdapter<?> suggestionsAdapter;
 
     private OnQueryTextListener onQueryChangeListener;
+    private OnQueryTextChangeListener onQueryTextChangeListener;
     private SearchViewListener searchViewListener;
+    private OnSuggestionsListener onSuggestionsListener;
+    private SearchHistory searchHistory;
+    private SearchMetricsListener searchMetricsListener;
+    private SearchMetrics searchMetrics;
+    private CallbackWatchdog callbackWatchdog;
+    private final QueryDispatcher queryDispatcher = new QueryDispatcher(this::dispatchQueryTextChange);
+    private final SuggestionLoader suggestionLoader = new SuggestionLoader(this::deliverSuggestions);
 
     private boolean searchIsClosing = false;
     private boolean keepQuery = false;
 
     private int defTextColor;
     private int defBackgroundColor;
+    private ColorStateList iconsTint;
+    private MaterialToolbar styledToolbar;
+    private int styledToolbarTextColor;
+    private int styledToolbarBackgroundColor;
+    // Menu icons already tinted with defTextColor
+    private final Map<Drawable, Boolean> tintedMenuIcons = new WeakHashMap<>();
+
+    // Calls that need the views, recorded until they are inflated, null once inflated
+    private List<Runnable> pendingViewCalls = new ArrayList<>();
 
     public SimpleSearchView(Context context) {
         this(context, null);
@@ -125,10 +168,7 @@ public class SimpleSearchView extends FrameLayout {
         super(context, attrs, defStyleAttr);
         this.context = context;
 
-        inflate();
         initStyle(attrs, defStyleAttr);
-        initSearchEditText();
-        initClickListeners();
         updateSearchViewStyle();
         showVoice(true);
 
@@ -138,17 +178,52 @@ public class SimpleSearchView extends FrameLayout {
     }
 
     private void inflate() {
-        LayoutInflater.from(context).inflate(R.layout.search_view, this, true);
+        LayoutInflater.from(context).inflate(flatRendering ? R.layout.search_view_flat : R.layout.search_view, this, true);
 
         searchContainer = findViewById(R.id.searchContainer);
         searchEditText = findViewById(R.id.searchEditText);
-        backButton = findViewById(R.id.buttonBack);
-        clearButton = findViewById(R.id.buttonClear);
-        voiceButton = findViewById(R.id.buttonVoice);
+        if (flatRendering) {
+            icons = (FlatSearchBar) searchContainer;
+        } else {
+            icons = new ButtonSearchIcons(findViewById(R.id.buttonBack), findViewById(R.id.buttonClear), findViewById(R.id.buttonVoice));
+        }
+        queryIcons = new QueryIcons(queryState, icons, this::isVoiceSearchAvailable);
+
+        initSearchEditText();
+        initClickListeners();
+
+        List<Runnable> calls = pendingViewCalls;
+        pendingViewCalls = null;
+        for (Runnable call : calls) {
+            call.run();
+        }
+    }
+
+    private void ensureInflated() {
+        if (pendingViewCalls != null) {
+            inflate();
+        }
+    }
+
+    /**
+     * Runs a call that needs the views now, or records it until they are inflated
+     */
+    private void whenInflated(@NonNull Runnable call) {
+        if (pendingViewCalls != null) {
+            pendingViewCalls.add(call);
+        } else {
+            call.run();
+        }
     }
 
     private void initStyle(AttributeSet attrs, int defStyleAttr) {
         TypedArray typedArray = context.obtainStyledAttributes(attrs, R.styleable.SimpleSearchView, defStyleAttr, 0);
+        boolean lazyInflate = typedArray != null && typedArray.getBoolean(R.styleable.SimpleSearchView_lazyInflate, false);
+        flatRendering = typedArray != null && typedArray.getBoolean(R.styleable.SimpleSearchView_flatRendering, false);
+        if (!lazyInflate || isInEditMode()) {
+            inflate();
+        }
+
         if (typedArray != null) {
             setSearchStyle(typedArray.getInt(R.styleable.SimpleSearchView_type, style));
 
@@ -209,6 +284,18 @@ public class SimpleSearchView extends FrameLayout {
             if (typedArray.hasValue(R.styleable.SimpleSearchView_android_textColor)) {
                 setTextColor(typedArray.getColor(R.styleable.SimpleSearchView_android_textColor, defTextColor));
             }
+
+            if (typedArray.hasValue(R.styleable.SimpleSearchView_queryDebounce)) {
+                setQueryDebounce(typedArray.getInt(R.styleable.SimpleSearchView_queryDebounce, 0));
+            }
+
+            if (typedArray.hasValue(R.styleable.SimpleSearchView_queryDispatchMode)) {
+                setQueryDispatchMode(typedArray.getInt(R.styleable.SimpleSearchView_queryDispatchMode, DISPATCH_TRAILING));
+            }
+
+            if (typedArray.hasValue(R.styleable.SimpleSearchView_tabLayoutAnimation)) {
+                setTabLayoutAnimation(typedArray.getInt(R.styleable.SimpleSearchView_tabLayoutAnimation, TAB_ANIMATION_HEIGHT));
+            }
             typedArray.recycle();
         } else {
             setSearchStyle(MATERIAL_SURFACE);
@@ -219,20 +306,31 @@ public class SimpleSearchView extends FrameLayout {
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         toolbar = ((View) getParent()).findViewById(toolbarId);
-
-        toolbar.setBackgroundColor(defBackgroundColor);
-        toolbar.setSubtitleTextColor(defTextColor);
-        toolbar.setTitleTextColor(defTextColor);
+        searchTransition.setToolbar(toolbar);
+        context.getApplicationContext().registerComponentCallbacks(suggestionLoader);
 
         updateToolbarStyle();
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        searchTransition.end();
+        queryDispatcher.cancel();
+        suggestionLoader.cancel();
+        context.getApplicationContext().unregisterComponentCallbacks(suggestionLoader);
+        if (callbackWatchdog != null) {
+            callbackWatchdog.stopWatchingFrames();
+        }
+        super.onDetachedFromWindow();
+    }
+
     private void updateSearchViewStyle() {
         setIconsColor(defTextColor);
         setTextColor(defTextColor);
         setHintTextColor(defTextColor);
-        setTextColor(defTextColor);
-        setBackgroundColor(defBackgroundColor);
+        if (!(getBackground() instanceof ColorDrawable) || ((ColorDrawable) getBackground()).getColor() != defBackgroundColor) {
+            setBackgroundColor(defBackgroundColor);
+        }
     }
 
     public static int getThemeColor(final Context context, int id) {
@@ -264,9 +362,9 @@ public class SimpleSearchView extends FrameLayout {
     }
 
     private void initClickListeners() {
-        backButton.setOnClickListener(v -> closeSearch());
-        clearButton.setOnClickListener(v -> clearSearch());
-        voiceButton.setOnClickListener(v -> voiceSearch());
+        icons.setOnIconClickListener(SearchIcons.BACK, v -> closeSearch());
+        icons.setOnIconClickListener(SearchIcons.CLEAR, v -> clearSearch());
+        icons.setOnIconClickListener(SearchIcons.VOICE, v -> voiceSearch());
     }
 
     @Override
@@ -274,7 +372,9 @@ public class SimpleSearchView extends FrameLayout {
         isClearingFocus = true;
         ContextUtils.hideKeyboard(this);
         super.clearFocus();
-        searchEditText.clearFocus();
+        if (searchEditText != null) {
+            searchEditText.clearFocus();
+        }
         isClearingFocus = false;
     }
 
@@ -283,7 +383,7 @@ public class SimpleSearchView extends FrameLayout {
         if (isClearingFocus) {
             return false;
         }
-        if (!isFocusable()) {
+        if (!isFocusable() || searchEditText == null) {
             return false;
         }
         return searchEditText.requestFocus(direction, previouslyFocusedRect);
@@ -342,32 +442,114 @@ public class SimpleSearchView extends FrameLayout {
 
     private void clearSearch() {
         searchEditText.setText(null);
+        queryDispatcher.flush();
         if (onQueryChangeListener != null) {
-            onQueryChangeListener.onQueryTextCleared();
+            beginCallback(CallbackWatchdog.ON_QUERY_TEXT_CLEARED);
+            try {
+                onQueryChangeListener.onQueryTextCleared();
+            } finally {
+                endCallback();
+            }
         }
     }
 
     private void onTextChanged(CharSequence newText) {
         query = newText;
-        boolean hasText = !TextUtils.isEmpty(newText);
-        if (hasText) {
-            clearButton.setVisibility(VISIBLE);
-            showVoice(false);
-        } else {
-            clearButton.setVisibility(GONE);
-            showVoice(true);
+        if (searchMetrics != null) {
+            searchMetrics.onQueryChange(System.nanoTime());
+        }
+        if (callbackWatchdog != null) {
+            callbackWatchdog.watchFrames(WATCHDOG_TYPING_FRAMES_MS);
+        }
+        queryIcons.onTextChanged(newText);
+
+        if (isHistoryQuery()) {
+            suggestionLoader.cancel();
+            deliverSuggestions(queryState.toString(), getHistorySuggestions());
+        } else if (suggestionLoader.hasProvider()) {
+            String text = queryState.toString();
+            suggestionLoader.cancelIfStale(text);
+            suggestionLoader.loadCached(text);
+        }
+        queryDispatcher.submit();
+    }
+
+    private void dispatchQueryTextChange() {
+        if (searchMetrics != null) {
+            searchMetrics.onQueryDispatch();
+        }
+        if (queryState.dispatch()) {
+            if (onQueryTextChangeListener != null) {
+                beginCallback(CallbackWatchdog.ON_QUERY_TEXT_CHANGE);
+                try {
+                    onQueryTextChangeListener.onQueryTextChange(queryState.getText());
+                } finally {
+                    endCallback();
+                }
+            }
+            if (onQueryChangeListener != null) {
+                beginCallback(CallbackWatchdog.ON_QUERY_TEXT_CHANGE);
+                try {
+                    onQueryChangeListener.onQueryTextChange(queryState.toString());
+                } finally {
+                    endCallback();
+                }
+            }
+        }
+        if (!isHistoryQuery() && suggestionLoader.hasProvider()) {
+            suggestionLoader.load(queryState.toString());
+        }
+    }
+
+    private boolean isHistoryQuery() {
+        return searchHistory != null && queryState.isEmpty();
+    }
+
+    @NonNull
+    private List<Suggestion> getHistorySuggestions() {
+        List<String> recent = searchHistory.getRecent(HISTORY_SUGGESTIONS_LIMIT);
+        List<Suggestion> suggestions = new ArrayList<>(recent.size());
+        for (String query : recent) {
+            suggestions.add(new Suggestion(query));
         }
+        return suggestions;
+    }
 
-        if (onQueryChangeListener != null && !TextUtils.equals(newText, oldQuery)) {
-            onQueryChangeListener.onQueryTextChange(newText.toString());
+    private void deliverSuggestions(@NonNull String query, @NonNull List<Suggestion> suggestions) {
+        if (searchMetrics != null) {
+            searchMetrics.onResults(System.nanoTime());
+        }
+        if (suggestionsAdapter != null) {
+            suggestionsAdapter.submitSuggestions(suggestions);
+        }
+        if (onSuggestionsListener != null) {
+            beginCallback(CallbackWatchdog.ON_SUGGESTIONS);
+            try {
+                onSuggestionsListener.onSuggestions(query, suggestions);
+            } finally {
+                endCallback();
+            }
         }
-        oldQuery = newText.toString();
     }
 
     private void onSubmitQuery() {
+        queryDispatcher.flush();
         CharSequence submittedQuery = searchEditText.getText();
         if (submittedQuery != null && TextUtils.getTrimmedLength(submittedQuery) > 0) {
-            if (onQueryChangeListener == null || !onQueryChangeListener.onQueryTextSubmit(submittedQuery.toString())) {
+            String submitted = submittedQuery.toString();
+            if (searchHistory != null) {
+                searchHistory.add(submitted);
+            }
+            boolean handled = false;
+            if (onQueryChangeListener != null) {
+                beginCallback(CallbackWatchdog.ON_QUERY_TEXT_SUBMIT);
+                try {
+                    handled = onQueryChangeListener.onQueryTextSubmit(submitted);
+                } finally {
+                    endCallback();
+                }
+            }
+            if (!handled) {
                 closeSearch();
                 searchIsClosing = true;
                 searchEditText.setText(null);
@@ -376,13 +558,15 @@ public class SimpleSearchView extends FrameLayout {
         }
     }
 
+    private boolean isVoiceSearchAvailable() {
+        return allowVoiceSearch && isVoiceAvailable();
+    }
+
     private boolean isVoiceAvailable() {
         if (isInEditMode()) {
             return true;
         }
-        PackageManager pm = getContext().getPackageManager();
-        List<ResolveInfo> activities = pm.queryIntentActivities(new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH), 0);
-        return !activities.isEmpty();
+        return VoiceAvailability.get(context).isAvailable();
     }
 
     /**
@@ -411,22 +595,41 @@ public class SimpleSearchView extends FrameLayout {
             return;
         }
 
+        ensureInflated();
         searchEditText.setText(keepQuery ? query : null);
         searchEditText.requestFocus();
+        startMetricsSession();
+        watchAnimationFrames();
 
-        animatorSet = getAnimationSetLazy(FULL_ALPHA, EMPTY_ALPHA, () -> {
+        searchTransition.show(animate, () -> {
             setToolbarVisibility(View.GONE);
             setVisibility(View.VISIBLE);
             hideTabLayout(animate);
+            if (searchMetrics != null) {
+                searchMetrics.onOpenAnimationEnd(System.nanoTime());
+            }
+            if (searchViewListener != null) {
+                beginCallback(CallbackWatchdog.ON_SEARCH_VIEW_SHOWN_ANIMATION);
+                try {
+                    searchViewListener.onSearchViewShownAnimation();
+                } finally {
+                    endCallback();
+                }
+            }
         });
 
-        if (animatorSet != null) {
-            animatorSet.start();
+        if (suggestionsView != null) {
+            suggestionsView.setVisibility(View.VISIBLE);
         }
 
         isSearchOpen = true;
         if (searchViewListener != null) {
-            searchViewListener.onSearchViewShown();
+            beginCallback(CallbackWatchdog.ON_SEARCH_VIEW_SHOWN);
+            try {
+                searchViewListener.onSearchViewShown();
+            } finally {
+                endCallback();
+            }
         }
     }
 
@@ -447,61 +650,85 @@ public class SimpleSearchView extends FrameLayout {
             return;
         }
 
+        queryDispatcher.cancel();
+        suggestionLoader.cancel();
+        if (searchMetrics != null) {
+            searchMetrics.endSession(System.nanoTime());
+        }
+        watchAnimationFrames();
         searchIsClosing = true;
         searchEditText.setText(null);
         searchIsClosing = false;
         clearFocus();
 
-        animatorSet = getAnimationSetLazy(EMPTY_ALPHA, FULL_ALPHA, () -> {
+        searchTransition.close(animate, () -> {
             setToolbarVisibility(View.VISIBLE);
             setVisibility(View.GONE);
             showTabLayout(animate);
+            if (searchMetrics != null) {
+                searchMetrics.onCloseAnimationEnd(System.nanoTime());
+                reportMetricsSession();
+            }
+            if (searchViewListener != null) {
+                beginCallback(CallbackWatchdog.ON_SEARCH_VIEW_CLOSED_ANIMATION);
+                try {
+                    searchViewListener.onSearchViewClosedAnimation();
+                } finally {
+                    endCallback();
+                }
+            }
         });
 
-        if (animatorSet != null) {
-            animatorSet.start();
+        if (suggestionsView != null) {
+            suggestionsView.setVisibility(View.GONE);
+        }
+        if (suggestionsAdapter != null) {
+            suggestionsAdapter.submitSuggestions(null);
         }
 
         isSearchOpen = false;
         if (searchViewListener != null) {
-            searchViewListener.onSearchViewClosed();
+            beginCallback(CallbackWatchdog.ON_SEARCH_VIEW_CLOSED);
+            try {
+                searchViewListener.onSearchViewClosed();
+            } finally {
+                endCallback();
+            }
         }
     }
 
-    private AnimatorSet getAnimationSetLazy(float emptyAlpha, float fullAlpha, onAnimationEnd callback) {
-        if (toolbar != null) {
-            Animator alphaToolbar =
-                    ObjectAnimator.ofFloat(toolbar, "alpha", emptyAlpha, fullAlpha);
-            Animator alphaSearchView =
-                    ObjectAnimator.ofFloat(this, "alpha", fullAlpha, emptyAlpha);
-            animatorSet = new AnimatorSet();
-            animatorSet.setInterpolator(new AccelerateDecelerateInterpolator());
-            animatorSet.setDuration(100);
-            animatorSet.playTogether(alphaToolbar, alphaSearchView);
-            animatorSet.addListener(new Animator.AnimatorListener() {
-                @Override
-                public void onAnimationStart(Animator animation) {
-                    setToolbarVisibility(View.VISIBLE);
-                    setVisibility(View.VISIBLE);
-                }
+    private void startMetricsSession() {
+        if (searchMetrics != null) {
+            // The close animation of the previous session was cut short, report it without that duration
+            reportMetricsSession();
+            searchMetrics.startSession(System.nanoTime());
+        }
+    }
 
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    if (callback != null) {
-                        callback.method();
-                    }
-                }
+    private void reportMetricsSession() {
+        if (searchMetrics.isSessionEnded()) {
+            searchMetricsListener.onSearchSessionEnd(searchMetrics);
+            searchMetrics.reset();
+        }
+    }
 
-                @Override
-                public void onAnimationCancel(Animator animation) {
-                }
+    private void watchAnimationFrames() {
+        if (callbackWatchdog != null) {
+            // The fade is shorter, the TabLayout animation lasts animationDuration
+            callbackWatchdog.watchFrames(animationDuration);
+        }
+    }
 
-                @Override
-                public void onAnimationRepeat(Animator animation) {
-                }
-            });
+    private void beginCallback(@NonNull String name) {
+        if (callbackWatchdog != null) {
+            callbackWatchdog.begin(name);
+        }
+    }
+
+    private void endCallback() {
+        if (callbackWatchdog != null) {
+            callbackWatchdog.end();
         }
-        return animatorSet;
     }
 
     private void setToolbarVisibility(int visibility) {
@@ -540,6 +767,64 @@ public class SimpleSearchView extends FrameLayout {
         });
     }
 
+    /**
+     * @return the RecyclerView that shows the suggestions
+     */
+    public RecyclerView getSuggestionsView() {
+        return suggestionsView;
+    }
+
+    /**
+     * Shows the suggestions in a RecyclerView that is visible only while the search is open,
+     * clicking a suggestion submits it
+     */
+    public void setSuggestionsView(@NonNull RecyclerView recyclerView) {
+        SimpleSuggestionsAdapter adapter = new SimpleSuggestionsAdapter();
+        adapter.setOnSuggestionClickListener(suggestion -> setQuery(suggestion.getText(), true));
+        setSuggestionsView(recyclerView, adapter);
+    }
+
+    /**
+     * Shows the suggestions in a RecyclerView that is visible only while the search is open.
+     * The RecyclerView shares its view pool with the other suggestion panels of the Activity.
+     *
+     * @param recyclerView the suggestions panel, null to remove it
+     * @param adapter      adapter that receives the suggestions
+     */
+    public void setSuggestionsView(@Nullable RecyclerView recyclerView, @Nullable SuggestionsAdapter<?> adapter) {
+        suggestionsView = recyclerView;
+        suggestionsAdapter = adapter;
+        if (recyclerView == null) {
+            return;
+        }
+
+        if (recyclerView.getLayoutManager() == null) {
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+        }
+        recyclerView.setRecycledViewPool(getSharedSuggestionsViewPool());
+        recyclerView.setAdapter(adapter);
+        recyclerView.setVisibility(isSearchOpen ? View.VISIBLE : View.GONE);
+    }
+
+    @NonNull
+    private RecyclerView.RecycledViewPool getSharedSuggestionsViewPool() {
+        // The pool holds views of this Activity, so it is kept in its window instead of a static field
+        Activity activity = ContextUtils.scanForActivity(context);
+        View decorView = activity != null && activity.getWindow() != null ? activity.getWindow().getDecorView() : null;
+
+        Object tag = decorView != null ? decorView.getTag(R.id.searchSuggestionsViewPool) : null;
+        if (tag instanceof RecyclerView.RecycledViewPool) {
+            return (RecyclerView.RecycledViewPool) tag;
+        }
+
+        RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+        pool.setMaxRecycledViews(0, SUGGESTIONS_POOL_SIZE);
+        if (decorView != null) {
+            decorView.setTag(R.id.searchSuggestionsViewPool, pool);
+        }
+        return pool;
+    }
+
     /**
      * Shows the attached TabLayout with animation
      */
@@ -557,7 +842,12 @@ public class SimpleSearchView extends FrameLayout {
             return;
         }
 
-        if (animate) {
+        int hidden = cancelTabLayoutAnimation();
+        if (animate && tabLayoutAnimation == TAB_ANIMATION_CLIP) {
+            tabLayout.setVisibility(View.VISIBLE);
+            tabLayoutAnimator = SimpleAnimationUtils.verticalClipSlideView(tabLayout, hidden, 0, animationDuration);
+            tabLayoutAnimator.start();
+        } else if (animate) {
             SimpleAnimationUtils.verticalSlideView(tabLayout, 0, tabLayoutInitialHeight, animationDuration).start();
         } else {
             tabLayout.setVisibility(View.VISIBLE);
@@ -581,13 +871,39 @@ public class SimpleSearchView extends FrameLayout {
             return;
         }
 
-        if (animate) {
+        int hidden = cancelTabLayoutAnimation();
+        if (animate && tabLayoutAnimation == TAB_ANIMATION_CLIP) {
+            tabLayoutAnimator = SimpleAnimationUtils.verticalClipSlideView(tabLayout, hidden, tabLayout.getHeight(), animationDuration);
+            tabLayoutAnimator.start();
+        } else if (animate) {
             SimpleAnimationUtils.verticalSlideView(tabLayout, tabLayout.getHeight(), 0, animationDuration).start();
         } else {
             tabLayout.setVisibility(View.GONE);
         }
     }
 
+    /**
+     * Stops a running clip animation of the TabLayout, a new one continues from where it stopped
+     *
+     * @return pixels of the TabLayout that were hidden
+     */
+    private int cancelTabLayoutAnimation() {
+        int hidden = tabLayout.getVisibility() == View.VISIBLE ? (int) -tabLayout.getTranslationY() : tabLayoutInitialHeight;
+        if (tabLayoutAnimator != null) {
+            tabLayoutAnimator.cancel();
+            tabLayoutAnimator = null;
+        }
+        return hidden;
+    }
+
+    /**
+     * @param animation TAB_ANIMATION_HEIGHT to shrink the TabLayout height, laying it out on every frame,
+     *                  TAB_ANIMATION_CLIP to slide it behind the toolbar with translation and clip bounds, laying it out once
+     */
+    public void setTabLayoutAnimation(@TabAnimation int animation) {
+        tabLayoutAnimation = animation;
+    }
+
     /**
      * Call this method on the onBackPressed method of the activity.
      * Returns true if the search was open and it closed with the call.
@@ -645,24 +961,30 @@ public class SimpleSearchView extends FrameLayout {
      */
     public void setSearchStyle(@Style int style) {
         this.style = style;
+        ThemePalette palette = ThemePalette.get(getContext());
+        int previousTextColor = defTextColor;
 
         switch (style) {
             case STYLE_CARD:
                 applyCardLikeStyle();
-                defTextColor = getThemeColor(getContext(), R.attr.colorOnSurface);
-                defBackgroundColor = getThemeColor(getContext(), R.attr.colorSurface);
+                defTextColor = palette.colorOnSurface;
+                defBackgroundColor = palette.colorSurface;
                 break;
             default:
             case STYLE_BAR:
             case MATERIAL_PRIMARY:
-                defTextColor = getThemeColor(getContext(), R.attr.colorOnPrimary);
-                defBackgroundColor = getThemeColor(getContext(), R.attr.colorPrimary);
+                defTextColor = palette.colorOnPrimary;
+                defBackgroundColor = palette.colorPrimary;
                 break;
             case MATERIAL_SURFACE:
-                defTextColor = getThemeColor(getContext(), R.attr.colorOnSurface);
-                defBackgroundColor = getThemeColor(getContext(), R.attr.colorSurface);
+                defTextColor = palette.colorOnSurface;
+                defBackgroundColor = palette.colorSurface;
                 break;
         }
+
+        if (defTextColor != previousTextColor) {
+            tintedMenuIcons.clear();
+        }
     }
 
     private void applyCardLikeStyle() {
@@ -672,10 +994,12 @@ public class SimpleSearchView extends FrameLayout {
         float elevation = DimensUtils.convertDpToPx(CARD_ELEVATION, context);
         layoutParams.setMargins(cardPadding, cardPadding, cardPadding, cardPadding);
 
-        searchContainer.setLayoutParams(layoutParams);
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            searchContainer.setElevation(elevation);
-        }
+        whenInflated(() -> {
+            searchContainer.setLayoutParams(layoutParams);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                searchContainer.setElevation(elevation);
+            }
+        });
     }
 
     private GradientDrawable getCardStyleBackground() {
@@ -689,73 +1013,93 @@ public class SimpleSearchView extends FrameLayout {
      * Sets icons alpha, does not set the back/up icon
      */
     public void setIconsAlpha(float alpha) {
-        backButton.setAlpha(alpha);
-        clearButton.setAlpha(alpha);
-        voiceButton.setAlpha(alpha);
+        whenInflated(() -> {
+            icons.setIconAlpha(SearchIcons.BACK, alpha);
+            icons.setIconAlpha(SearchIcons.CLEAR, alpha);
+            icons.setIconAlpha(SearchIcons.VOICE, alpha);
+        });
     }
 
     /**
      * Sets icons colors, does not set back/up icon
      */
     public void setIconsColor(@ColorInt int color) {
-        backButton.setIconTint(ColorStateList.valueOf(color));
-        clearButton.setIconTint(ColorStateList.valueOf(color));
-        voiceButton.setIconTint(ColorStateList.valueOf(color));
+        whenInflated(() -> {
+            if (isSingleColor(iconsTint, color)) {
+                return;
+            }
+            iconsTint = ColorStateList.valueOf(color);
+            icons.setIconTint(SearchIcons.BACK, iconsTint);
+            icons.setIconTint(SearchIcons.CLEAR, iconsTint);
+            icons.setIconTint(SearchIcons.VOICE, iconsTint);
+        });
     }
 
     /**
      * Sets the back/up icon drawable
      */
     public void setBackIconDrawable(Drawable drawable) {
-        backButton.setIcon(drawable);
+        whenInflated(() -> icons.setIcon(SearchIcons.BACK, drawable));
     }
 
     /**
      * Sets a custom Drawable for the voice search button
      */
     public void setVoiceIconDrawable(Drawable drawable) {
-        voiceButton.setIcon(drawable);
+        whenInflated(() -> icons.setIcon(SearchIcons.VOICE, drawable));
     }
 
     /**
      * Sets a custom Drawable for the clear text button
      */
     public void setClearIconDrawable(Drawable drawable) {
-        clearButton.setIcon(drawable);
+        whenInflated(() -> icons.setIcon(SearchIcons.CLEAR, drawable));
     }
 
     public void setSearchBackground(Drawable background) {
-        searchContainer.setBackground(background);
+        whenInflated(() -> searchContainer.setBackground(background));
     }
 
     public void setTextColor(@ColorInt int color) {
-        searchEditText.setTextColor(color);
+        whenInflated(() -> {
+            if (!isSingleColor(searchEditText.getTextColors(), color)) {
+                searchEditText.setTextColor(color);
+            }
+        });
     }
 
     public void setHintTextColor(@ColorInt int color) {
-        searchEditText.setHintTextColor(color);
+        whenInflated(() -> {
+            if (!isSingleColor(searchEditText.getHintTextColors(), color)) {
+                searchEditText.setHintTextColor(color);
+            }
+        });
+    }
+
+    private static boolean isSingleColor(@Nullable ColorStateList colors, @ColorInt int color) {
+        return colors != null && !colors.isStateful() && colors.getDefaultColor() == color;
     }
 
     public void setHint(CharSequence hint) {
-        searchEditText.setHint(hint);
+        whenInflated(() -> searchEditText.setHint(hint));
     }
 
     public void setInputType(int inputType) {
-        searchEditText.setInputType(inputType);
+        whenInflated(() -> searchEditText.setInputType(inputType));
     }
 
     /**
-     * Uses reflection to set the search EditText cursor drawable
+     * Sets the search EditText cursor drawable, with reflection before Q
      */
     public void setCursorDrawable(@DrawableRes int drawable) {
-        EditTextReflectionUtils.setCursorDrawable(searchEditText, drawable);
+        whenInflated(() -> EditTextReflectionUtils.setCursorDrawable(searchEditText, drawable));
     }
 
     /**
-     * Uses reflection to set the search EditText cursor color
+     * Sets the search EditText cursor color, with reflection before Q
      */
     public void setCursorColor(@ColorInt int color) {
-        EditTextReflectionUtils.setCursorColor(searchEditText, color);
+        whenInflated(() -> EditTextReflectionUtils.setCursorColor(searchEditText, color));
     }
 
     public void enableVoiceSearch(boolean voiceSearch) {
@@ -763,9 +1107,12 @@ public class SimpleSearchView extends FrameLayout {
     }
 
     /**
+     * Inflates the search views if they are still deferred, see the lazyInflate attribute
+     *
      * @return EditText view that contains the search query, can be used with hooks like RxBinding
      */
     public EditText getSearchEditText() {
+        ensureInflated();
         return searchEditText;
     }
 
@@ -774,6 +1121,7 @@ public class SimpleSearchView extends FrameLayout {
      * @param submit true to submit the query
      */
     public void setQuery(CharSequence query, boolean submit) {
+        ensureInflated();
         searchEditText.setText(query);
         if (query != null) {
             searchEditText.setSelection(searchEditText.length());
@@ -790,11 +1138,7 @@ public class SimpleSearchView extends FrameLayout {
      * @param show true to enable the voice search icon
      */
     public void showVoice(boolean show) {
-        if (show && isVoiceAvailable() && allowVoiceSearch) {
-            voiceButton.setVisibility(VISIBLE);
-        } else {
-            voiceButton.setVisibility(GONE);
-        }
+        whenInflated(() -> queryIcons.showVoice(show));
     }
 
     /**
@@ -811,14 +1155,32 @@ public class SimpleSearchView extends FrameLayout {
     }
 
     private void updateToolbarStyle() {
-        if (toolbar != null) {
-            Menu menu = toolbar.getMenu();
-            for (int i = 0; i < menu.size(); i++) {
-                MenuItem item = menu.getItem(i);
-                if (item.getIcon() != null) {
-                    DrawableCompat.setTintList(item.getIcon(), ColorStateList.valueOf(defTextColor));
+        if (toolbar == null) {
+            return;
+        }
+
+        if (toolbar != styledToolbar || styledToolbarTextColor != defTextColor || styledToolbarBackgroundColor != defBackgroundColor) {
+            toolbar.setBackgroundColor(defBackgroundColor);
+            toolbar.setSubtitleTextColor(defTextColor);
+            toolbar.setTitleTextColor(defTextColor);
+            styledToolbar = toolbar;
+            styledToolbarTextColor = defTextColor;
+            styledToolbarBackgroundColor = defBackgroundColor;
+        }
+
+        // Only icons added or replaced since the last call need a tint
+        ColorStateList tint = null;
+        Menu menu = toolbar.getMenu();
+        for (int i = 0; i < menu.size(); i++) {
+            Drawable icon = menu.getItem(i).getIcon();
+            if (icon != null && tintedMenuIcons.put(icon, Boolean.TRUE) == null) {
+                if (tint == null) {
+                    tint = ColorStateList.valueOf(defTextColor);
                 }
+                DrawableCompat.setTintList(icon, tint);
             }
+        }
+        if (tint != null) {
             toolbar.invalidate();
         }
     }
@@ -835,6 +1197,24 @@ public class SimpleSearchView extends FrameLayout {
     }
 
 
+    /**
+     * Delays query change events until the user stops typing for the given time.
+     * Only the latest query of the window is dispatched, submitting or clearing dispatches it right away.
+     *
+     * @param debounce debounce window, in ms, 0 to dispatch every change immediately
+     */
+    public void setQueryDebounce(int debounce) {
+        queryDispatcher.setDebounce(debounce);
+    }
+
+    /**
+     * @param mode DISPATCH_TRAILING to dispatch only at the end of the debounce window,
+     *             DISPATCH_LEADING_TRAILING to also dispatch the first change of the window immediately
+     */
+    public void setQueryDispatchMode(@DispatchMode int mode) {
+        queryDispatcher.setMode(mode);
+    }
+
     /**
      * @param listener listens to query changes
      */
@@ -842,6 +1222,95 @@ public class SimpleSearchView extends FrameLayout {
         onQueryChangeListener = listener;
     }
 
+    /**
+     * Listens to query changes without a String per change, unlike {@link OnQueryTextListener#onQueryTextChange(String)}.
+     * Both listeners can be set at the same time.
+     *
+     * @param listener listens to query changes
+     */
+    public void setOnQueryTextChangeListener(@Nullable OnQueryTextChangeListener listener) {
+        onQueryTextChangeListener = listener;
+    }
+
+    /**
+     * Sets the source of suggestions, it is called off the main thread for every dispatched query.
+     * Running work is cancelled when a newer query arrives or the search closes.
+     *
+     * @param provider provides suggestions for a query, null to disable suggestions
+     */
+    public void setSuggestionProvider(@Nullable SuggestionProvider provider) {
+        suggestionLoader.setProvider(provider);
+    }
+
+    /**
+     * Federated suggestions, every provider runs in parallel for each query and the suggestions are delivered as each
+     * one finishes. Until the deadline they are ranked together by {@link Suggestion#getScore()}, the suggestions of
+     * providers that finish later are ranked among themselves and appended below the ones already delivered.
+     * A suggestion returned by several providers is shown once.
+     *
+     * @param providers      provide suggestions for a query, their scores must be comparable
+     * @param deadlineMillis time after the query change during which suggestions may be reordered
+     */
+    public void setSuggestionProviders(@NonNull List<SuggestionProvider> providers, long deadlineMillis) {
+        suggestionLoader.setProviders(providers, deadlineMillis);
+    }
+
+    /**
+     * @param executor executor that runs the SuggestionProvider, null to use the default single background thread.
+     *                 With several providers it should run tasks in parallel, by default a pool of background threads
+     */
+    public void setSuggestionExecutor(@Nullable Executor executor) {
+        suggestionLoader.setExecutor(executor);
+    }
+
+    /**
+     * Suggestions are cached by query, a cached query is served as soon as it is typed, without waiting for the
+     * debounce or leaving the main thread. The cache shrinks when the system is low on memory.
+     * By default it keeps the suggestions of the last 64 queries, up to about 256 KB, and queries that only differ in
+     * case or surrounding spaces share their suggestions. Providers that tell those apart need a cache without a
+     * {@link QueryCache.KeyNormalizer}.
+     *
+     * @param cache the suggestions cache, null to disable caching
+     */
+    public void setSuggestionCache(@Nullable QueryCache<List<Suggestion>> cache) {
+        suggestionLoader.setCache(cache);
+    }
+
+    /**
+     * Drops the cached suggestions, call it when the data behind the SuggestionProvider changes
+     */
+    public void clearSuggestionCache() {
+        QueryCache<List<Suggestion>> cache = suggestionLoader.getCache();
+        if (cache != null) {
+            cache.evictAll();
+        }
+    }
+
+    /**
+     * Submitted queries are added to the history, and the most recent ones are shown as suggestions
+     * while the query is empty. The history is owned by the caller, who should close it when done.
+     *
+     * @param history search history, null to disable it
+     */
+    public void setSearchHistory(@Nullable SearchHistory history) {
+        searchHistory = history;
+    }
+
+    /**
+     * @return the search history, if set
+     */
+    @Nullable
+    public SearchHistory getSearchHistory() {
+        return searchHistory;
+    }
+
+    /**
+     * @param listener receives, on the main thread, the suggestions of the current query
+     */
+    public void setOnSuggestionsListener(@Nullable OnSuggestionsListener listener) {
+        onSuggestionsListener = listener;
+    }
+
     /**
      * Set this listener to listen to search open and close events
      *
@@ -851,6 +1320,49 @@ public class SimpleSearchView extends FrameLayout {
         searchViewListener = listener;
     }
 
+    /**
+     * Measures every search session, from {@link #showSearch()} to {@link #closeSearch()}, and reports it once the
+     * close animation ends. Nothing is allocated for it while the query is typed.
+     *
+     * @param listener receives the metrics of each session, null to stop measuring
+     */
+    public void setSearchMetricsListener(@Nullable SearchMetricsListener listener) {
+        searchMetricsListener = listener;
+        if (listener == null) {
+            searchMetrics = null;
+        } else if (searchMetrics == null) {
+            searchMetrics = new SearchMetrics();
+        }
+        suggestionLoader.setMetrics(searchMetrics);
+    }
+
+    /**
+     * Debug mode, times the listener callbacks and counts the frames dropped while the search opens, closes and
+     * while the query is typed. Callbacks slower than the watchdog frame budget are recorded with their stack.
+     *
+     * @param watchdog records the slow callbacks and dropped frames, null to disable the debug mode
+     */
+    public void setCallbackWatchdog(@Nullable CallbackWatchdog watchdog) {
+        if (callbackWatchdog != null) {
+            callbackWatchdog.stopWatchingFrames();
+        }
+        callbackWatchdog = watchdog;
+        if (watchdog != null) {
+            WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+            if (windowManager != null) {
+                watchdog.setRefreshRate(windowManager.getDefaultDisplay().getRefreshRate());
+            }
+        }
+    }
+
+    /**
+     * @return the callback watchdog, if set
+     */
+    @Nullable
+    public CallbackWatchdog getCallbackWatchdog() {
+        return callbackWatchdog;
+    }
+
     public void setVoiceSearchPrompt(String voiceSearchPrompt) {
         this.voiceSearchPrompt = voiceSearchPrompt;
     }
@@ -922,6 +1434,38 @@ public class SimpleSearchView extends FrameLayout {
     }
 
 
+    public interface OnQueryTextChangeListener {
+
+        /**
+         * @param newText the query text, only valid during the call, copy it with toString() to keep it
+         */
+        void onQueryTextChange(@NonNull CharSequence newText);
+    }
+
+
+    public interface OnSuggestionsListener {
+
+        /**
+         * Called on the main thread when the suggestions of the current query are ready
+         *
+         * @param query       the query the suggestions belong to
+         * @param suggestions the suggestions provided by the SuggestionProvider
+         */
+        void onSuggestions(@NonNull String query, @NonNull List<Suggestion> suggestions);
+    }
+
+
+    public interface SearchMetricsListener {
+
+        /**
+         * Called on the main thread once a search session has closed
+         *
+         * @param metrics the metrics of the session, only valid during the call
+         */
+        void onSearchSessionEnd(@NonNull SearchMetrics metrics);
+    }
+
+
     public interface SearchViewListener {
 
         /**
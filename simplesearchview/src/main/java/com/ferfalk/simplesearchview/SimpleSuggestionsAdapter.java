@@ -0,0 +1,38 @@
+package com.ferfalk.simplesearchview;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Default suggestions adapter, shows each suggestion text in a single line
+ */
+public class SimpleSuggestionsAdapter extends SuggestionsAdapter<SimpleSuggestionsAdapter.ViewHolder> {
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.search_suggestion_item, parent, false);
+        ViewHolder holder = new ViewHolder(view);
+        view.setOnClickListener(v -> onSuggestionClick(holder.getAdapterPosition()));
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        holder.text.setText(getSuggestion(position).getText());
+    }
+
+    public static class ViewHolder extends RecyclerView.ViewHolder {
+        final TextView text;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            text = itemView.findViewById(R.id.suggestionText);
+        }
+    }
+}
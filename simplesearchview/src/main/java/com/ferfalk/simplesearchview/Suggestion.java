@@ -0,0 +1,98 @@
+package com.ferfalk.simplesearchview;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A single suggestion for a search query
+ */
+public class Suggestion {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long id;
+    private final String text;
+    private final float score;
+
+    /**
+     * @param text suggestion text, its id is derived from it
+     */
+    public Suggestion(@NonNull String text) {
+        this(idOf(text), text);
+    }
+
+    /**
+     * @param text  suggestion text, its id is derived from it
+     * @param score relevance, higher first when the results of several providers are merged
+     */
+    public Suggestion(@NonNull String text, float score) {
+        this(idOf(text), text, score);
+    }
+
+    /**
+     * @param id   stable id, unique among the suggestions of a query
+     * @param text suggestion text
+     */
+    public Suggestion(long id, @NonNull String text) {
+        this(id, text, 0);
+    }
+
+    /**
+     * @param id    stable id, unique among the suggestions of a query
+     * @param text  suggestion text
+     * @param score relevance, higher first when the results of several providers are merged
+     */
+    public Suggestion(long id, @NonNull String text, float score) {
+        this.id = id;
+        this.text = text;
+        this.score = score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    @NonNull
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return relevance of the suggestion, only used to rank it, see {@link SimpleSearchView#setSuggestionProviders}
+     */
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Suggestion that = (Suggestion) o;
+        return id == that.id && text.equals(that.text);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.valueOf(id).hashCode() + text.hashCode();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    private static long idOf(@NonNull String text) {
+        // 64 bit FNV-1a, String.hashCode collides too easily to be used as an id
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,327 @@
+package com.ferfalk.simplesearchview;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.ferfalk.simplesearchview.engine.QueryCache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs the {@link SuggestionProvider} off the main thread, latest query wins.
+ * Every new load cancels the previous one and results are only delivered if nothing newer was requested.
+ * Cached results are delivered right away, without leaving the main thread.
+ * With several providers they run in parallel, and their results are delivered merged as each one finishes,
+ * see {@link SuggestionMerger}.
+ * All methods must be called on the main thread.
+ */
+class SuggestionLoader implements ComponentCallbacks2 {
+    static final int CACHE_MAX_ENTRIES = 64;
+    static final long CACHE_MAX_BYTES = 256 * 1024;
+
+    // Rough ART sizes: list with its array, then per suggestion the object, its String and char array
+    private static final int LIST_BYTES = 40;
+    private static final int SUGGESTION_BYTES = 72;
+
+    // Queries differing only in case or surrounding spaces share their suggestions
+    static final QueryCache.KeyNormalizer CACHE_KEY_NORMALIZER = query -> query.trim().toLowerCase(Locale.ROOT);
+
+    interface Target {
+        void deliver(@NonNull String query, @NonNull List<Suggestion> suggestions);
+    }
+
+    private static Executor defaultExecutor;
+    private static Executor defaultParallelExecutor;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Target target;
+
+    private List<SuggestionProvider> providers = Collections.emptyList();
+    private long deadlineMillis;
+    private Executor executor;
+    private QueryCache<List<Suggestion>> cache = createDefaultCache();
+    private SearchMetrics metrics;
+
+    private int generation = 0;
+    private String query;
+    private CancellationSignal cancellationSignal;
+
+    SuggestionLoader(@NonNull Target target) {
+        this.target = target;
+    }
+
+    void setProvider(@Nullable SuggestionProvider provider) {
+        setProviders(provider == null ? Collections.emptyList() : Collections.singletonList(provider), 0);
+    }
+
+    /**
+     * @param providers      run in parallel for every query
+     * @param deadlineMillis time after the query during which results are ranked together, late ones are appended
+     */
+    void setProviders(@NonNull List<SuggestionProvider> providers, long deadlineMillis) {
+        cancel();
+        this.providers = Collections.unmodifiableList(new ArrayList<>(providers));
+        this.deadlineMillis = deadlineMillis;
+        if (cache != null) {
+            cache.evictAll();
+        }
+    }
+
+    boolean hasProvider() {
+        return !providers.isEmpty();
+    }
+
+    void setExecutor(@Nullable Executor executor) {
+        this.executor = executor;
+    }
+
+    void setCache(@Nullable QueryCache<List<Suggestion>> cache) {
+        this.cache = cache;
+    }
+
+    @Nullable
+    QueryCache<List<Suggestion>> getCache() {
+        return cache;
+    }
+
+    /**
+     * @param metrics receives the cache hits and misses and the provider time, null to stop recording
+     */
+    void setMetrics(@Nullable SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Delivers the cached suggestions of the query, if any, synchronously
+     *
+     * @return true if the query was a cache hit
+     */
+    boolean loadCached(@NonNull String query) {
+        if (providers.isEmpty() || cache == null || query.equals(this.query)) {
+            return false;
+        }
+
+        List<Suggestion> suggestions = cache.get(query);
+        if (suggestions == null) {
+            return false;
+        }
+        cancel();
+        this.query = query;
+        if (metrics != null) {
+            metrics.onCacheHit();
+        }
+        target.deliver(query, suggestions);
+        return true;
+    }
+
+    /**
+     * Loads the suggestions for the query, does nothing if that query is already loading or loaded
+     */
+    void load(@NonNull String query) {
+        if (providers.isEmpty() || query.equals(this.query) || loadCached(query)) {
+            return;
+        }
+        cancel();
+        if (metrics != null) {
+            metrics.onCacheMiss();
+        }
+
+        final int loadGeneration = generation;
+        final CancellationSignal signal = new CancellationSignal();
+        this.query = query;
+        cancellationSignal = signal;
+
+        if (providers.size() > 1) {
+            loadParallel(loadGeneration, query, signal);
+            return;
+        }
+
+        final SuggestionProvider loadProvider = providers.get(0);
+        getExecutor().execute(() -> {
+            if (signal.isCanceled()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            List<Suggestion> suggestions;
+            try {
+                suggestions = loadProvider.getSuggestions(query, signal);
+            } catch (OperationCanceledException e) {
+                return;
+            }
+            long providerNanos = System.nanoTime() - start;
+
+            if (!signal.isCanceled()) {
+                handler.post(() -> deliver(loadGeneration, query, suggestions, providerNanos));
+            }
+        });
+    }
+
+    private void loadParallel(int loadGeneration, @NonNull String query, @NonNull CancellationSignal signal) {
+        final SuggestionMerger merger = new SuggestionMerger(providers.size(), System.nanoTime() + deadlineMillis * 1000_000);
+        Executor parallelExecutor = executor != null ? executor : getDefaultParallelExecutor();
+        for (int i = 0; i < providers.size(); i++) {
+            final int index = i;
+            final SuggestionProvider loadProvider = providers.get(i);
+            parallelExecutor.execute(() -> {
+                if (signal.isCanceled()) {
+                    return;
+                }
+
+                long start = System.nanoTime();
+                List<Suggestion> suggestions;
+                try {
+                    suggestions = loadProvider.getSuggestions(query, signal);
+                } catch (OperationCanceledException e) {
+                    return;
+                }
+                long providerNanos = System.nanoTime() - start;
+
+                if (!signal.isCanceled()) {
+                    handler.post(() -> deliverPartial(loadGeneration, query, merger, index, suggestions, providerNanos));
+                }
+            });
+        }
+    }
+
+    /**
+     * Cancels the running load if it is not for the given query
+     */
+    void cancelIfStale(@NonNull String query) {
+        if (this.query != null && !this.query.equals(query)) {
+            cancel();
+        }
+    }
+
+    /**
+     * Cancels the running load, its result will never be delivered
+     */
+    void cancel() {
+        generation++;
+        query = null;
+        if (cancellationSignal != null) {
+            cancellationSignal.cancel();
+            cancellationSignal = null;
+        }
+    }
+
+    private void deliver(int loadGeneration, @NonNull String query, @NonNull List<Suggestion> suggestions, long providerNanos) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        cancellationSignal = null;
+        if (metrics != null) {
+            metrics.onProviderTime(providerNanos);
+        }
+        List<Suggestion> result = Collections.unmodifiableList(suggestions);
+        if (cache != null) {
+            cache.put(query, result);
+        }
+        target.deliver(query, result);
+    }
+
+    private void deliverPartial(int loadGeneration, @NonNull String query, @NonNull SuggestionMerger merger,
+                                int provider, @NonNull List<Suggestion> suggestions, long providerNanos) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        if (metrics != null) {
+            metrics.onProviderTime(providerNanos);
+        }
+        // Timed on arrival on the main thread, where the merged results are shown
+        merger.add(provider, suggestions, System.nanoTime());
+        List<Suggestion> result = Collections.unmodifiableList(merger.getSuggestions());
+        if (merger.isComplete()) {
+            cancellationSignal = null;
+            if (cache != null) {
+                cache.put(query, result);
+            }
+        }
+        target.deliver(query, result);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (cache == null) {
+            return;
+        }
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.evictAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            cache.trimToHalf();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        if (cache != null) {
+            cache.evictAll();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // No action
+    }
+
+    @NonNull
+    static QueryCache<List<Suggestion>> createDefaultCache() {
+        return new QueryCache<>(CACHE_MAX_ENTRIES, CACHE_MAX_BYTES, SuggestionLoader::estimateSize,
+                CACHE_KEY_NORMALIZER);
+    }
+
+    private static long estimateSize(@NonNull List<Suggestion> suggestions) {
+        long size = LIST_BYTES;
+        for (int i = 0; i < suggestions.size(); i++) {
+            size += SUGGESTION_BYTES + 2L * suggestions.get(i).getText().length();
+        }
+        return size;
+    }
+
+    @NonNull
+    private Executor getExecutor() {
+        if (executor != null) {
+            return executor;
+        }
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "SimpleSearchView-suggestions");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultExecutor;
+    }
+
+    @NonNull
+    private static Executor getDefaultParallelExecutor() {
+        if (defaultParallelExecutor == null) {
+            // Threads are created as providers run at the same time, and end after a minute idle
+            defaultParallelExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "SimpleSearchView-providers");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return defaultParallelExecutor;
+    }
+}
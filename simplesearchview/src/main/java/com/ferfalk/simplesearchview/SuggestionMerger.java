@@ -0,0 +1,135 @@
+package com.ferfalk.simplesearchview;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges the results of several providers for one query, as they arrive.
+ * <p>
+ * Until the deadline, all results are ranked together by score. After it, what was merged so far stays in place
+ * and the results of late providers are ranked among themselves and appended below it.
+ * A suggestion returned by more than one provider, same id and text, is kept once, with its best score before the
+ * deadline and where it was first shown after it. Suggestions sharing only an id, as the local ids of two indexes
+ * can, are kept apart. Ties go to the first provider in the list, then to the order of its results.
+ * Not thread safe.
+ */
+class SuggestionMerger {
+    private static final Comparator<Entry> RANKING = (a, b) -> {
+        int byScore = Float.compare(b.suggestion.getScore(), a.suggestion.getScore());
+        if (byScore != 0) {
+            return byScore;
+        }
+        if (a.provider != b.provider) {
+            return Integer.compare(a.provider, b.provider);
+        }
+        return Integer.compare(a.position, b.position);
+    };
+
+    private final int providerCount;
+    private final long deadlineNanos;
+    private final boolean[] finished;
+    private int finishedCount = 0;
+    private boolean frozen = false;
+
+    private final List<Entry> merged = new ArrayList<>();
+    private final Map<Suggestion, Entry> bySuggestion = new HashMap<>();
+
+    /**
+     * @param providerCount number of providers whose results are expected
+     * @param deadlineNanos {@link System#nanoTime()} after which results can only be appended
+     */
+    SuggestionMerger(int providerCount, long deadlineNanos) {
+        this.providerCount = providerCount;
+        this.deadlineNanos = deadlineNanos;
+        finished = new boolean[providerCount];
+    }
+
+    /**
+     * @param provider    index of the provider, from 0 to the provider count - 1
+     * @param suggestions the provider results, best first
+     * @param nowNanos    {@link System#nanoTime()} when the results arrived
+     */
+    void add(int provider, @NonNull List<Suggestion> suggestions, long nowNanos) {
+        if (finished[provider]) {
+            return;
+        }
+        finished[provider] = true;
+        finishedCount++;
+        if (nowNanos - deadlineNanos > 0) {
+            frozen = true;
+        }
+
+        if (frozen) {
+            append(provider, suggestions);
+        } else {
+            rank(provider, suggestions);
+        }
+    }
+
+    /**
+     * @return true once every provider has delivered
+     */
+    boolean isComplete() {
+        return finishedCount == providerCount;
+    }
+
+    /**
+     * @return the merged suggestions, a new list
+     */
+    @NonNull
+    List<Suggestion> getSuggestions() {
+        List<Suggestion> suggestions = new ArrayList<>(merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            suggestions.add(merged.get(i).suggestion);
+        }
+        return suggestions;
+    }
+
+    private void rank(int provider, @NonNull List<Suggestion> suggestions) {
+        for (int i = 0; i < suggestions.size(); i++) {
+            Suggestion suggestion = suggestions.get(i);
+            Entry entry = new Entry(suggestion, provider, i);
+            Entry existing = bySuggestion.get(suggestion);
+            if (existing == null) {
+                bySuggestion.put(suggestion, entry);
+                merged.add(entry);
+            } else if (RANKING.compare(entry, existing) < 0) {
+                bySuggestion.put(suggestion, entry);
+                merged.set(merged.indexOf(existing), entry);
+            }
+        }
+        Collections.sort(merged, RANKING);
+    }
+
+    private void append(int provider, @NonNull List<Suggestion> suggestions) {
+        List<Entry> late = new ArrayList<>(suggestions.size());
+        for (int i = 0; i < suggestions.size(); i++) {
+            Suggestion suggestion = suggestions.get(i);
+            if (!bySuggestion.containsKey(suggestion)) {
+                Entry entry = new Entry(suggestion, provider, i);
+                bySuggestion.put(suggestion, entry);
+                late.add(entry);
+            }
+        }
+        Collections.sort(late, RANKING);
+        merged.addAll(late);
+    }
+
+    private static final class Entry {
+        final Suggestion suggestion;
+        final int provider;
+        final int position;
+
+        Entry(@NonNull Suggestion suggestion, int provider, int position) {
+            this.suggestion = suggestion;
+            this.provider = provider;
+            this.position = position;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ferfalk.simplesearchview;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.List;
+
+/**
+ * Provides the suggestions for a query, see {@link SimpleSearchView#setSuggestionProvider(SuggestionProvider)}
+ */
+public interface SuggestionProvider {
+
+    /**
+     * Called on the suggestion executor, never on the main thread.
+     * The signal is cancelled as soon as a newer query arrives or the search closes,
+     * long running implementations should check it and give up early.
+     *
+     * @param query              the query text
+     * @param cancellationSignal cancelled when the result is no longer needed
+     * @return suggestions for the query, delivered only if the query is still current
+     */
+    @WorkerThread
+    @NonNull
+    List<Suggestion> getSuggestions(@NonNull String query, @NonNull CancellationSignal cancellationSignal);
+}
@@ -0,0 +1,94 @@
+package com.ferfalk.simplesearchview;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * Base adapter for the suggestions panel, see {@link SimpleSearchView#setSuggestionsView(RecyclerView, SuggestionsAdapter)}.
+ * New suggestions are diffed against the displayed ones on a background thread and only the changed rows are rebound.
+ * Items have stable ids, taken from {@link Suggestion#getId()}.
+ */
+public abstract class SuggestionsAdapter<VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+
+    private static final DiffUtil.ItemCallback<Suggestion> DIFF_CALLBACK = new DiffUtil.ItemCallback<Suggestion>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Suggestion oldItem, @NonNull Suggestion newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Suggestion oldItem, @NonNull Suggestion newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final AsyncListDiffer<Suggestion> differ =
+            new AsyncListDiffer<>(new AdapterListUpdateCallback(this), new AsyncDifferConfig.Builder<>(DIFF_CALLBACK).build());
+
+    private OnSuggestionClickListener onSuggestionClickListener;
+
+    public SuggestionsAdapter() {
+        setHasStableIds(true);
+    }
+
+    /**
+     * Replaces the displayed suggestions, the diff is computed off the main thread
+     */
+    public void submitSuggestions(@Nullable List<Suggestion> suggestions) {
+        differ.submitList(suggestions);
+    }
+
+    @NonNull
+    public List<Suggestion> getSuggestions() {
+        return differ.getCurrentList();
+    }
+
+    @NonNull
+    public Suggestion getSuggestion(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getSuggestion(position).getId();
+    }
+
+    /**
+     * @param listener listens to suggestion clicks, dispatched by subclasses with {@link #onSuggestionClick(int)}
+     */
+    public void setOnSuggestionClickListener(@Nullable OnSuggestionClickListener listener) {
+        onSuggestionClickListener = listener;
+    }
+
+    /**
+     * Call this from the item click handler
+     *
+     * @param position adapter position of the clicked item
+     */
+    protected void onSuggestionClick(int position) {
+        if (onSuggestionClickListener != null && position != RecyclerView.NO_POSITION) {
+            onSuggestionClickListener.onSuggestionClick(getSuggestion(position));
+        }
+    }
+
+
+    public interface OnSuggestionClickListener {
+
+        /**
+         * @param suggestion the clicked suggestion
+         */
+        void onSuggestionClick(@NonNull Suggestion suggestion);
+    }
+}
@@ -0,0 +1,59 @@
+package com.ferfalk.simplesearchview;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.TypedValue;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Theme colours used by the search styles, resolved once per theme instead of on every
+ * {@link SimpleSearchView#setSearchStyle(int)}. Entries go away with their theme, and are resolved again
+ * when the ui mode changes, as with a day/night toggle.
+ */
+final class ThemePalette {
+    private static final Map<Resources.Theme, ThemePalette> CACHE = new WeakHashMap<>();
+
+    private final int uiMode;
+    @ColorInt
+    final int colorPrimary;
+    @ColorInt
+    final int colorOnPrimary;
+    @ColorInt
+    final int colorSurface;
+    @ColorInt
+    final int colorOnSurface;
+
+    private ThemePalette(@NonNull Resources.Theme theme, int uiMode) {
+        this.uiMode = uiMode;
+        TypedValue value = new TypedValue();
+        colorPrimary = resolveColor(theme, R.attr.colorPrimary, value);
+        colorOnPrimary = resolveColor(theme, R.attr.colorOnPrimary, value);
+        colorSurface = resolveColor(theme, R.attr.colorSurface, value);
+        colorOnSurface = resolveColor(theme, R.attr.colorOnSurface, value);
+    }
+
+    @NonNull
+    static ThemePalette get(@NonNull Context context) {
+        Resources.Theme theme = context.getTheme();
+        int uiMode = context.getResources().getConfiguration().uiMode;
+        synchronized (CACHE) {
+            ThemePalette palette = CACHE.get(theme);
+            if (palette == null || palette.uiMode != uiMode) {
+                palette = new ThemePalette(theme, uiMode);
+                CACHE.put(theme, palette);
+            }
+            return palette;
+        }
+    }
+
+    @ColorInt
+    private static int resolveColor(@NonNull Resources.Theme theme, int attr, @NonNull TypedValue value) {
+        theme.resolveAttribute(attr, value, true);
+        return value.data;
+    }
+}
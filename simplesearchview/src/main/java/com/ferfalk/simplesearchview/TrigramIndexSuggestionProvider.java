@@ -0,0 +1,50 @@
+package com.ferfalk.simplesearchview;
+
+import android.os.CancellationSignal;
+
+import androidx.annotation.NonNull;
+
+import com.ferfalk.simplesearchview.engine.TrigramIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Suggests the highest weighted entries of a {@link TrigramIndex} that contain the query anywhere, "phone" suggests
+ * "Smartphone case". Suggestions are scored with the weight of their entry,
+ * their ids derive from their text so the same entry suggested by several providers is shown once.
+ */
+public class TrigramIndexSuggestionProvider implements SuggestionProvider {
+    public static final int DEFAULT_LIMIT = 8;
+
+    private final TrigramIndex index;
+    private final int[] ids;
+
+    public TrigramIndexSuggestionProvider(@NonNull TrigramIndex index) {
+        this(index, DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param index entries to suggest
+     * @param limit maximum number of suggestions per query
+     */
+    public TrigramIndexSuggestionProvider(@NonNull TrigramIndex index, int limit) {
+        this.index = index;
+        ids = new int[limit];
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<Suggestion> getSuggestions(@NonNull String query, @NonNull CancellationSignal cancellationSignal) {
+        int count = index.search(query, ids);
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        List<Suggestion> suggestions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            suggestions.add(new Suggestion(index.getText(ids[i]), index.getWeight(ids[i])));
+        }
+        return suggestions;
+    }
+}
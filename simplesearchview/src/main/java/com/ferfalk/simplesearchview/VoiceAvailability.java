@@ -0,0 +1,74 @@
+package com.ferfalk.simplesearchview;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.speech.RecognizerIntent;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Whether a speech recognizer is installed, shared by the whole process.
+ * The PackageManager is only asked the first time and again after a package is added, removed or changed,
+ * instead of on every {@link SimpleSearchView#showVoice(boolean)}.
+ */
+class VoiceAvailability {
+
+    interface Lookup {
+        boolean isVoiceAvailable();
+    }
+
+    private static VoiceAvailability instance;
+
+    private final Lookup lookup;
+    private Boolean available;
+
+    VoiceAvailability(@NonNull Lookup lookup) {
+        this.lookup = lookup;
+    }
+
+    @NonNull
+    static synchronized VoiceAvailability get(@NonNull Context context) {
+        if (instance == null) {
+            Context appContext = context.getApplicationContext();
+            PackageManager pm = appContext.getPackageManager();
+            instance = new VoiceAvailability(() ->
+                    !pm.queryIntentActivities(new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH), 0).isEmpty());
+            instance.invalidateOnPackageChanges(appContext);
+        }
+        return instance;
+    }
+
+    synchronized boolean isAvailable() {
+        if (available == null) {
+            available = lookup.isVoiceAvailable();
+        }
+        return available;
+    }
+
+    /**
+     * Drops the cached value, the next call looks it up again
+     */
+    synchronized void invalidate() {
+        available = null;
+    }
+
+    private void invalidateOnPackageChanges(@NonNull Context appContext) {
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+
+        // Registered on the application context for the life of the process, like the cached value
+        appContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidate();
+            }
+        }, filter);
+    }
+}
@@ -2,16 +2,28 @@ package com.ferfalk.simplesearchview.utils;
 
 import android.graphics.PorterDuff;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.content.ContextCompat;
 import android.util.Log;
+import android.util.LongSparseArray;
 import android.widget.EditText;
 import android.widget.TextView;
 
+import com.ferfalk.simplesearchview.R;
+
 import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
+ * Sets the EditText cursor drawable and color, with the public API on Q and later and with reflection before it.
+ * The reflected fields are looked up once and the tinted cursors are cached per EditText, drawable and color.
+ *
  * @author Fernando A. H. Falkiewicz
  */
 public class EditTextReflectionUtils {
@@ -19,50 +31,192 @@ public class EditTextReflectionUtils {
     private static final String EDIT_TEXT_FIELD_CURSOR_DRAWABLE_RES = "mCursorDrawableRes";
     private static final String EDIT_TEXT_FIELD_EDITOR = "mEditor";
     private static final String EDIT_TEXT_FIELD_CURSOR_DRAWABLE = "mCursorDrawable";
+    private static final String EDIT_TEXT_FIELD_DRAWABLE_FOR_CURSOR = "mDrawableForCursor";
+
+    private static final Object LOCK = new Object();
+    // Lookups are done once, a field that isn't found stays null and is not looked up again
+    private static boolean textViewFieldsResolved;
+    private static Field cursorDrawableResField;
+    private static Field editorField;
+    private static final Map<Class<?>, Field> editorCursorFields = new HashMap<>();
 
     private EditTextReflectionUtils() {
     }
 
     /**
-     * Uses reflection to set an EditText cursor drawable
+     * Sets an EditText cursor drawable, uses reflection before Q
      */
     public static void setCursorDrawable(@NonNull EditText editText, int drawable) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            editText.setTextCursorDrawable(drawable);
+            return;
+        }
+
         try {
             // https://github.com/android/platform_frameworks_base/blob/kitkat-release/core/java/android/widget/TextView.java#L562-564
-            Field f = TextView.class.getDeclaredField(EDIT_TEXT_FIELD_CURSOR_DRAWABLE_RES);
-            f.setAccessible(true);
-            f.set(editText, drawable);
+            Field field = getCursorDrawableResField();
+            if (field != null) {
+                field.setInt(editText, drawable);
+            }
         } catch (Exception e) {
             Log.e(TAG, e.getMessage(), e);
         }
     }
 
     /**
-     * Uses reflection to set an EditText cursor color
+     * Sets an EditText cursor color, uses reflection before Q
      */
     public static void setCursorColor(@NonNull EditText editText, @ColorInt int color) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            setCursorColorQ(editText, color);
+            return;
+        }
+
         try {
             // Get the cursor resource id
-            Field field = TextView.class.getDeclaredField(EDIT_TEXT_FIELD_CURSOR_DRAWABLE_RES);
-            field.setAccessible(true);
+            Field field = getCursorDrawableResField();
+            if (field == null) {
+                return;
+            }
             int drawableResId = field.getInt(editText);
 
             // Get the editor
-            field = TextView.class.getDeclaredField(EDIT_TEXT_FIELD_EDITOR);
-            field.setAccessible(true);
+            field = getEditorField();
+            if (field == null) {
+                return;
+            }
             Object editor = field.get(editText);
+            if (editor == null) {
+                return;
+            }
 
-            // Get the drawable and set a color filter
-            Drawable drawable = ContextCompat.getDrawable(editText.getContext(), drawableResId);
+            // Set the drawables, an array of two before P and a single one on P
+            field = getEditorCursorField(editor.getClass());
+            if (field == null) {
+                return;
+            }
+            Drawable drawable = getTintedCursor(editText, drawableResId, color);
+            if (drawable == null) {
+                return;
+            }
+            if (field.getType() == Drawable[].class) {
+                field.set(editor, new Drawable[]{drawable, drawable});
+            } else {
+                field.set(editor, drawable);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, e.getMessage(), e);
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private static void setCursorColorQ(@NonNull EditText editText, @ColorInt int color) {
+        Drawable drawable = editText.getTextCursorDrawable();
+        if (drawable == null) {
+            return;
+        }
+        // The drawable is already this view's own, mutate it so the tint doesn't reach other views
+        drawable = drawable.mutate();
+        drawable.setColorFilter(color, PorterDuff.Mode.SRC_IN);
+        editText.setTextCursorDrawable(drawable);
+    }
+
+    /**
+     * The tinted cursor drawable, loaded and tinted only the first time for this EditText.
+     * The drawables are kept in a tag of the EditText, so they are never shared with other views
+     * or contexts and go away with the view.
+     */
+    @Nullable
+    private static Drawable getTintedCursor(@NonNull EditText editText, int drawableResId, @ColorInt int color) {
+        long key = ((long) drawableResId << 32) | (color & 0xFFFFFFFFL);
+        LongSparseArray<Drawable> tintedCursors = getTintedCursors(editText);
+        Drawable drawable = tintedCursors.get(key);
+        if (drawable == null) {
+            drawable = ContextCompat.getDrawable(editText.getContext(), drawableResId);
+            if (drawable == null) {
+                return null;
+            }
+            drawable = drawable.mutate();
             drawable.setColorFilter(color, PorterDuff.Mode.SRC_IN);
-            Drawable[] drawables = {drawable, drawable};
+            tintedCursors.put(key, drawable);
+        }
+        return drawable;
+    }
 
-            // Set the drawables
-            field = editor.getClass().getDeclaredField(EDIT_TEXT_FIELD_CURSOR_DRAWABLE);
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private static LongSparseArray<Drawable> getTintedCursors(@NonNull EditText editText) {
+        Object tag = editText.getTag(R.id.searchTintedCursors);
+        if (tag instanceof LongSparseArray) {
+            return (LongSparseArray<Drawable>) tag;
+        }
+        LongSparseArray<Drawable> tintedCursors = new LongSparseArray<>();
+        editText.setTag(R.id.searchTintedCursors, tintedCursors);
+        return tintedCursors;
+    }
+
+    @Nullable
+    private static Field getCursorDrawableResField() {
+        synchronized (LOCK) {
+            resolveTextViewFields();
+            return cursorDrawableResField;
+        }
+    }
+
+    @Nullable
+    private static Field getEditorField() {
+        synchronized (LOCK) {
+            resolveTextViewFields();
+            return editorField;
+        }
+    }
+
+    private static void resolveTextViewFields() {
+        if (!textViewFieldsResolved) {
+            cursorDrawableResField = findField(TextView.class, EDIT_TEXT_FIELD_CURSOR_DRAWABLE_RES);
+            editorField = findField(TextView.class, EDIT_TEXT_FIELD_EDITOR);
+            textViewFieldsResolved = true;
+        }
+    }
+
+    @Nullable
+    private static Field getEditorCursorField(@NonNull Class<?> editorClass) {
+        synchronized (LOCK) {
+            if (editorCursorFields.containsKey(editorClass)) {
+                return editorCursorFields.get(editorClass);
+            }
+            Field field = findField(editorClass, EDIT_TEXT_FIELD_CURSOR_DRAWABLE);
+            if (field == null) {
+                field = findField(editorClass, EDIT_TEXT_FIELD_DRAWABLE_FOR_CURSOR);
+            }
+            editorCursorFields.put(editorClass, field);
+            return field;
+        }
+    }
+
+    @Nullable
+    private static Field findField(@NonNull Class<?> clazz, @NonNull String name) {
+        try {
+            Field field = clazz.getDeclaredField(name);
             field.setAccessible(true);
-            field.set(editor, drawables);
+            return field;
         } catch (Exception e) {
             Log.e(TAG, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Forgets the fields and the tinted cursors of the EditText, so the next call pays the cold cost again
+     */
+    @VisibleForTesting
+    static void clearCaches(@NonNull EditText editText) {
+        synchronized (LOCK) {
+            textViewFieldsResolved = false;
+            cursorDrawableResField = null;
+            editorField = null;
+            editorCursorFields.clear();
         }
+        editText.setTag(R.id.searchTintedCursors, null);
     }
 }
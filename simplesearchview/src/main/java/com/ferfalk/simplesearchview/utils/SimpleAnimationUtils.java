@@ -4,8 +4,10 @@ import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
+import android.graphics.Rect;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
 import androidx.interpolator.view.animation.FastOutSlowInInterpolator;
 import android.view.View;
 import android.view.animation.Interpolator;
@@ -70,6 +72,49 @@ public class SimpleAnimationUtils {
         return anim;
     }
 
+    /**
+     * Slides the view up behind its top edge, or back down, moving only its translation and clip bounds.
+     * Unlike {@link #verticalSlideView(View, int, int, int)} nothing is laid out while it runs, the view keeps its
+     * space until it is fully hidden, then it is gone with a single layout.
+     *
+     * @param fromHidden pixels hidden at the start, from 0 to the view height
+     * @param toHidden   pixels hidden at the end, the view height hides it
+     */
+    public static Animator verticalClipSlideView(@NonNull View view, int fromHidden, int toHidden, int duration) {
+        Rect clipBounds = new Rect();
+        ValueAnimator anim = ValueAnimator
+                .ofInt(fromHidden, toHidden);
+
+        anim.addUpdateListener(animation -> {
+            int hidden = (int) (Integer) animation.getAnimatedValue();
+            view.setTranslationY(-hidden);
+            clipBounds.set(0, hidden, view.getWidth(), view.getHeight());
+            ViewCompat.setClipBounds(view, clipBounds);
+        });
+
+        anim.addListener(new DefaultActionAnimationListener(view, null) {
+            private boolean cancelled = false;
+
+            @Override
+            void defaultOnAnimationCancel(@NonNull View view) {
+                cancelled = true;
+            }
+
+            @Override
+            void defaultOnAnimationEnd(@NonNull View view) {
+                if (!cancelled && toHidden > 0 && toHidden >= view.getHeight()) {
+                    view.setVisibility(View.GONE);
+                }
+                view.setTranslationY(0);
+                ViewCompat.setClipBounds(view, null);
+            }
+        });
+
+        anim.setDuration(duration);
+        anim.setInterpolator(getDefaultInterpolator());
+        return anim;
+    }
+
 
     private static Interpolator getDefaultInterpolator() {
         return new FastOutSlowInInterpolator();
@@ -131,7 +176,6 @@ public class SimpleAnimationUtils {
             // No default action
         }
 
-        @SuppressWarnings("unused")
         void defaultOnAnimationCancel(@NonNull View view) {
             // No default action
         }
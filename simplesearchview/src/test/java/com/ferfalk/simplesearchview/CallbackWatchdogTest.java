@@ -0,0 +1,92 @@
+package com.ferfalk.simplesearchview;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CallbackWatchdogTest {
+    private static final long FRAME = 16_666_667;
+
+    @Test
+    public void fastCallbacks_areOnlyCounted() {
+        CallbackWatchdog watchdog = new CallbackWatchdog(50);
+        for (int i = 0; i < 100; i++) {
+            watchdog.begin(CallbackWatchdog.ON_QUERY_TEXT_CHANGE);
+            watchdog.end();
+        }
+        assertEquals(100, watchdog.getCallbackCount());
+        assertTrue(watchdog.getSlowCallbacks().isEmpty());
+    }
+
+    @Test
+    public void slowCallback_isRecordedWithItsStack() throws InterruptedException {
+        CallbackWatchdog watchdog = new CallbackWatchdog(10);
+        List<CallbackWatchdog.SlowCallback> reported = new ArrayList<>();
+        watchdog.setOnSlowCallbackListener(reported::add);
+
+        watchdog.begin(CallbackWatchdog.ON_QUERY_TEXT_SUBMIT);
+        slowListener();
+        watchdog.end();
+
+        assertEquals(1, watchdog.getSlowCallbacks().size());
+        CallbackWatchdog.SlowCallback slow = watchdog.getSlowCallbacks().get(0);
+        assertEquals(slow, reported.get(0));
+        assertEquals(CallbackWatchdog.ON_QUERY_TEXT_SUBMIT, slow.getName());
+        assertTrue(slow.getDurationMillis() >= 100);
+        assertTrue(containsMethod(slow.getStack(), "slowListener"));
+    }
+
+    @Test
+    public void nestedCallbacks_countAsTheOuterOne() throws InterruptedException {
+        CallbackWatchdog watchdog = new CallbackWatchdog(10);
+        watchdog.setOnSlowCallbackListener(callback -> {
+        });
+        watchdog.begin(CallbackWatchdog.ON_SEARCH_VIEW_CLOSED);
+        watchdog.begin(CallbackWatchdog.ON_QUERY_TEXT_CHANGE);
+        slowListener();
+        watchdog.end();
+        watchdog.end();
+        // Unbalanced calls are ignored
+        watchdog.end();
+
+        assertEquals(1, watchdog.getCallbackCount());
+        assertEquals(CallbackWatchdog.ON_SEARCH_VIEW_CLOSED, watchdog.getSlowCallbacks().get(0).getName());
+    }
+
+    @Test
+    public void frames_countTheMissedOnes() {
+        CallbackWatchdog watchdog = new CallbackWatchdog();
+        watchdog.setRefreshRate(60);
+        long time = 1_000_000_000L;
+        watchdog.recordFrame(time);
+        watchdog.recordFrame(time += FRAME);
+        // Jitter is not a dropped frame
+        watchdog.recordFrame(time += FRAME + FRAME / 4);
+        // Three frames missed
+        watchdog.recordFrame(time += 4 * FRAME);
+
+        assertEquals(4, watchdog.getFrameCount());
+        assertEquals(3, watchdog.getDroppedFrameCount());
+
+        watchdog.reset();
+        assertEquals(0, watchdog.getFrameCount());
+        assertEquals(0, watchdog.getDroppedFrameCount());
+    }
+
+    private static void slowListener() throws InterruptedException {
+        Thread.sleep(100);
+    }
+
+    private static boolean containsMethod(StackTraceElement[] stack, String method) {
+        for (StackTraceElement element : stack) {
+            if (element.getMethodName().equals(method)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
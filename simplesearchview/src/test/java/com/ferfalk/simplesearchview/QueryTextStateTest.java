@@ -0,0 +1,139 @@
+package com.ferfalk.simplesearchview;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QueryTextStateTest {
+    private static final String QUERY = "simple search view";
+
+    @Test
+    public void update_reportsChanges() {
+        QueryTextState state = new QueryTextState();
+        assertTrue(state.isEmpty());
+        assertTrue(state.update("a"));
+        assertFalse(state.update(new StringBuilder("a")));
+        assertTrue(state.update("ab"));
+        assertEquals("ab", state.toString());
+        assertEquals("ab", state.getText().toString());
+    }
+
+    @Test
+    public void updateEmptiness_reportsTransitionsOnly() {
+        QueryTextState state = new QueryTextState();
+        assertTrue(state.updateEmptiness("a"));
+        assertFalse(state.updateEmptiness("ab"));
+        assertFalse(state.updateEmptiness("ab"));
+        assertTrue(state.updateEmptiness(""));
+        assertFalse(state.updateEmptiness(""));
+        assertTrue(state.updateEmptiness("b"));
+        assertEquals("b", state.toString());
+    }
+
+    @Test
+    public void dispatch_skipsUnchangedText() {
+        QueryTextState state = new QueryTextState();
+        assertTrue(state.dispatch());
+        assertFalse(state.dispatch());
+        state.update("a");
+        assertTrue(state.dispatch());
+        state.update("ab");
+        state.update("a");
+        assertFalse(state.dispatch());
+    }
+
+    @Test
+    public void toString_isCreatedOncePerChange() {
+        QueryTextState state = new QueryTextState();
+        state.update("abc");
+        String first = state.toString();
+        state.update("abc");
+        assertTrue(first == state.toString());
+        state.update("abd");
+        assertFalse(first == state.toString());
+    }
+
+    @Test
+    public void keystrokes_allocateNothingAfterWarmUp() {
+        com.sun.management.ThreadMXBean threads = threadMXBean();
+        long threadId = Thread.currentThread().getId();
+        KeystrokePath path = new KeystrokePath();
+        StringBuilder editable = new StringBuilder(QUERY.length());
+
+        for (int i = 0; i < 10_000; i++) {
+            typeAndErase(path, editable);
+        }
+
+        // Reading the counter allocates too, measure it alone first
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long after = threads.getThreadAllocatedBytes(threadId);
+        long measurementCost = after - before;
+
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100; i++) {
+            typeAndErase(path, editable);
+        }
+        after = threads.getThreadAllocatedBytes(threadId);
+
+        long keystrokes = 100L * QUERY.length() * 2;
+        assertEquals("Bytes allocated over " + keystrokes + " keystrokes", 0, after - before - measurementCost);
+        // Every keystroke dispatched, none debounced
+        assertEquals(10_100L * QUERY.length() * 2, path.metrics.getDispatchedQueryCount());
+    }
+
+    private static void typeAndErase(KeystrokePath path, StringBuilder editable) {
+        for (int i = 0; i < QUERY.length(); i++) {
+            editable.append(QUERY.charAt(i));
+            path.keystroke(editable);
+        }
+        while (editable.length() > 0) {
+            editable.setLength(editable.length() - 1);
+            path.keystroke(editable);
+        }
+    }
+
+    /**
+     * What SimpleSearchView.onTextChanged runs per keystroke without a device: the metrics, the query state and
+     * icons, then the dispatcher, whose target reads the query as a CharSequence.
+     * A debounced dispatch posts to a Handler, which needs a device and isn't counted.
+     */
+    private static final class KeystrokePath implements QueryDispatcher.Target {
+        final QueryTextState state = new QueryTextState();
+        final SearchMetrics metrics = new SearchMetrics();
+        final QueryIcons icons = new QueryIcons(state, new RecordingSearchIcons(), () -> true);
+        final QueryDispatcher dispatcher = new QueryDispatcher(this);
+        int dispatchedLength;
+
+        KeystrokePath() {
+            metrics.startSession(System.nanoTime());
+        }
+
+        void keystroke(CharSequence text) {
+            metrics.onQueryChange(System.nanoTime());
+            icons.onTextChanged(text);
+            dispatcher.submit();
+        }
+
+        @Override
+        public void dispatch() {
+            metrics.onQueryDispatch();
+            if (state.dispatch()) {
+                dispatchedLength = state.getText().length();
+            }
+            metrics.onResults(System.nanoTime());
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ferfalk.simplesearchview;
+
+import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Keeps the icon visibility instead of showing views
+ */
+class RecordingSearchIcons implements SearchIcons {
+    final boolean[] visible = new boolean[COUNT];
+    int changes = 0;
+
+    @Override
+    public void setIcon(int icon, @Nullable Drawable drawable) {
+    }
+
+    @Override
+    public void setIconTint(int icon, @Nullable ColorStateList tint) {
+    }
+
+    @Override
+    public void setIconAlpha(int icon, float alpha) {
+    }
+
+    @Override
+    public void setIconVisible(int icon, boolean visible) {
+        this.visible[icon] = visible;
+        changes++;
+    }
+
+    @Override
+    public void setOnIconClickListener(int icon, @Nullable View.OnClickListener listener) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.ferfalk.simplesearchview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchMetricsTest {
+    private static final long MS = 1000_000;
+
+    @Test
+    public void session_recordsBetweenStartAndEnd() {
+        SearchMetrics metrics = new SearchMetrics();
+        metrics.onQueryChange(0);
+        assertFalse(metrics.isSessionOpen());
+
+        metrics.startSession(1000 * MS);
+        metrics.onOpenAnimationEnd(1100 * MS);
+        metrics.onQueryChange(1200 * MS);
+        metrics.onQueryChange(1210 * MS);
+        metrics.onQueryChange(1220 * MS);
+        metrics.onQueryDispatch();
+        metrics.onCacheMiss();
+        metrics.onProviderTime(30 * MS);
+        metrics.onResults(1270 * MS);
+        metrics.onQueryChange(1300 * MS);
+        metrics.onCacheHit();
+        metrics.onResults(1300 * MS);
+        metrics.endSession(2000 * MS);
+        metrics.onQueryChange(2010 * MS);
+        metrics.onCloseAnimationEnd(2100 * MS);
+
+        assertTrue(metrics.isSessionEnded());
+        assertEquals(1000, metrics.getSessionDuration());
+        assertEquals(100, metrics.getOpenAnimationDuration());
+        assertEquals(100, metrics.getCloseAnimationDuration());
+        assertEquals(4, metrics.getQueryChangeCount());
+        assertEquals(1, metrics.getDispatchedQueryCount());
+        assertEquals(3, metrics.getCoalescedQueryCount());
+        assertEquals(0.5f, metrics.getCacheHitRatio(), 0);
+        assertEquals(2, metrics.getKeystrokeToResultLatency().getCount());
+        assertEquals(0, metrics.getKeystrokeToResultLatency().getMin());
+        assertEquals(50_000, metrics.getKeystrokeToResultLatency().getMax());
+        assertEquals(30_000, metrics.getProviderTime().getMax());
+    }
+
+    @Test
+    public void results_areOnlyTimedOncePerKeystroke() {
+        SearchMetrics metrics = new SearchMetrics();
+        metrics.startSession(0);
+        metrics.onResults(10 * MS);
+        metrics.onQueryChange(20 * MS);
+        metrics.onResults(30 * MS);
+        metrics.onResults(40 * MS);
+        assertEquals(1, metrics.getKeystrokeToResultLatency().getCount());
+        assertEquals(10_000, metrics.getKeystrokeToResultLatency().getMax());
+    }
+
+    @Test
+    public void unfinishedAnimations_areReportedAsMissing() {
+        SearchMetrics metrics = new SearchMetrics();
+        metrics.startSession(0);
+        metrics.endSession(10 * MS);
+        metrics.onOpenAnimationEnd(20 * MS);
+        assertEquals(-1, metrics.getOpenAnimationDuration());
+        assertEquals(-1, metrics.getCloseAnimationDuration());
+
+        metrics.reset();
+        assertFalse(metrics.isSessionEnded());
+        assertEquals(0, metrics.getQueryChangeCount());
+    }
+}
@@ -0,0 +1,25 @@
+package com.ferfalk.simplesearchview;
+
+import com.ferfalk.simplesearchview.engine.QueryCache;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SuggestionLoaderTest {
+    @Test
+    public void defaultCache_sharesEquivalentQueries() {
+        QueryCache<List<Suggestion>> cache = SuggestionLoader.createDefaultCache();
+        List<Suggestion> suggestions = Collections.singletonList(new Suggestion("Foo fighters"));
+        cache.put("Foo", suggestions);
+
+        assertEquals(suggestions, cache.get("foo "));
+        assertEquals(suggestions, cache.get(" FOO"));
+        assertNull(cache.get("fo"));
+        assertEquals(1, cache.size());
+    }
+}
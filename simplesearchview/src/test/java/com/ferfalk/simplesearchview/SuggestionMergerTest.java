@@ -0,0 +1,97 @@
+package com.ferfalk.simplesearchview;
+
+import android.os.CancellationSignal;
+
+import com.ferfalk.simplesearchview.engine.PrefixIndex;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SuggestionMergerTest {
+    private static final long DEADLINE = 100;
+
+    @Test
+    public void beforeDeadline_rankedByScore() {
+        SuggestionMerger merger = new SuggestionMerger(2, DEADLINE);
+        merger.add(0, Arrays.asList(suggestion(1, "recent", 5), suggestion(2, "older", 1)), 10);
+        assertEquals(Arrays.asList("recent", "older"), texts(merger.getSuggestions()));
+
+        merger.add(1, Arrays.asList(suggestion(3, "catalogue", 3), suggestion(4, "tail", 0)), 50);
+        assertEquals(Arrays.asList("recent", "catalogue", "older", "tail"), texts(merger.getSuggestions()));
+        assertTrue(merger.isComplete());
+    }
+
+    @Test
+    public void afterDeadline_appendedBelow() {
+        SuggestionMerger merger = new SuggestionMerger(3, DEADLINE);
+        merger.add(0, Arrays.asList(suggestion(1, "local", 1), suggestion(2, "local two", 0)), 10);
+        merger.add(2, Arrays.asList(suggestion(5, "server", 9), suggestion(6, "server best", 10)), 150);
+        assertFalse(merger.isComplete());
+        assertEquals(Arrays.asList("local", "local two", "server best", "server"), texts(merger.getSuggestions()));
+
+        // Frozen once the deadline passed, even for results that were faster than the late ones
+        merger.add(1, Arrays.asList(suggestion(3, "catalogue", 100)), 160);
+        assertEquals(Arrays.asList("local", "local two", "server best", "server", "catalogue"), texts(merger.getSuggestions()));
+    }
+
+    @Test
+    public void duplicates_keptOnce() {
+        SuggestionMerger merger = new SuggestionMerger(3, DEADLINE);
+        merger.add(0, Arrays.asList(suggestion(1, "shared", 1), suggestion(2, "local", 2)), 10);
+        merger.add(1, Arrays.asList(suggestion(1, "shared", 3)), 20);
+        assertEquals(Arrays.asList("shared", "local"), texts(merger.getSuggestions()));
+        assertEquals(3, merger.getSuggestions().get(0).getScore(), 0);
+
+        merger.add(2, Arrays.asList(suggestion(2, "local", 50), suggestion(7, "new", 0)), 200);
+        assertEquals(Arrays.asList("shared", "local", "new"), texts(merger.getSuggestions()));
+    }
+
+    @Test
+    public void ties_followProviderOrder() {
+        SuggestionMerger merger = new SuggestionMerger(2, DEADLINE);
+        merger.add(1, Arrays.asList(suggestion(3, "second a", 1), suggestion(4, "second b", 1)), 10);
+        merger.add(0, Arrays.asList(suggestion(1, "first", 1)), 20);
+        assertEquals(Arrays.asList("first", "second a", "second b"), texts(merger.getSuggestions()));
+    }
+
+    @Test
+    public void sameIdDifferentText_keptApart() {
+        SuggestionMerger merger = new SuggestionMerger(2, DEADLINE);
+        merger.add(0, Arrays.asList(suggestion(0, "apple", 2), suggestion(1, "apricot", 1)), 10);
+        merger.add(1, Arrays.asList(suggestion(0, "black shoes", 2), suggestion(1, "blue shoes", 1)), 20);
+        assertEquals(Arrays.asList("apple", "black shoes", "apricot", "blue shoes"), texts(merger.getSuggestions()));
+    }
+
+    @Test
+    public void indexProviders_withOverlappingTermIds() {
+        // Both indexes number their terms from 0
+        PrefixIndex fruits = new PrefixIndex.Builder().add("apple", 2).add("apricot", 1).add("banana", 0).build();
+        PrefixIndex shoes = new PrefixIndex.Builder().add("apex shoes", 3).add("apple", 2).build();
+        CancellationSignal signal = new CancellationSignal();
+        List<Suggestion> first = new PrefixIndexSuggestionProvider(fruits).getSuggestions("ap", signal);
+        List<Suggestion> second = new PrefixIndexSuggestionProvider(shoes).getSuggestions("ap", signal);
+
+        SuggestionMerger merger = new SuggestionMerger(2, DEADLINE);
+        merger.add(0, first, 10);
+        merger.add(1, second, 20);
+        assertEquals(Arrays.asList("apex shoes", "apple", "apricot"), texts(merger.getSuggestions()));
+    }
+
+    private static Suggestion suggestion(long id, String text, float score) {
+        return new Suggestion(id, text, score);
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        String[] texts = new String[suggestions.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = suggestions.get(i).getText();
+        }
+        return Arrays.asList(texts);
+    }
+}
@@ -0,0 +1,78 @@
+package com.ferfalk.simplesearchview;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VoiceAvailabilityTest {
+
+    @Test
+    public void isAvailable_looksUpOnce() {
+        CountingLookup lookup = new CountingLookup(true);
+        VoiceAvailability availability = new VoiceAvailability(lookup);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(availability.isAvailable());
+        }
+        assertEquals(1, lookup.calls);
+    }
+
+    @Test
+    public void invalidate_looksUpAgain() {
+        CountingLookup lookup = new CountingLookup(true);
+        VoiceAvailability availability = new VoiceAvailability(lookup);
+        assertTrue(availability.isAvailable());
+
+        lookup.available = false;
+        availability.invalidate();
+        assertFalse(availability.isAvailable());
+        assertFalse(availability.isAvailable());
+        assertEquals(2, lookup.calls);
+    }
+
+    @Test
+    public void keystrokes_doNotLookUp() {
+        CountingLookup lookup = new CountingLookup(true);
+        VoiceAvailability availability = new VoiceAvailability(lookup);
+        RecordingSearchIcons icons = new RecordingSearchIcons();
+        // The icons SimpleSearchView updates from its text watcher
+        QueryIcons queryIcons = new QueryIcons(new QueryTextState(), icons, availability::isAvailable);
+        StringBuilder editable = new StringBuilder();
+
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 == 9) {
+                editable.setLength(0);
+            } else {
+                editable.append('a');
+            }
+            queryIcons.onTextChanged(editable);
+        }
+        assertEquals(1, lookup.calls);
+        // Only when the query filled or emptied, 100 times each
+        assertEquals(400, icons.changes);
+        assertFalse(icons.visible[SearchIcons.CLEAR]);
+        assertTrue(icons.visible[SearchIcons.VOICE]);
+
+        queryIcons.onTextChanged("a");
+        assertTrue(icons.visible[SearchIcons.CLEAR]);
+        assertFalse(icons.visible[SearchIcons.VOICE]);
+        assertEquals(1, lookup.calls);
+    }
+
+    private static class CountingLookup implements VoiceAvailability.Lookup {
+        boolean available;
+        int calls = 0;
+
+        CountingLookup(boolean available) {
+            this.available = available;
+        }
+
+        @Override
+        public boolean isVoiceAvailable() {
+            calls++;
+            return available;
+        }
+    }
+}